@@ -0,0 +1,174 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/*
+  Grades boards by how much work they take to clear.
+  3BV is the minimum number of clicks needed: one per opening (connected region of empty
+  cells, which reveals itself and its border in one click) plus one per numbered cell that
+  borders no opening. Guesses are counted by replaying the board with the deductions of
+  FrontierSolver and opening a safe cell whenever those run out. Scoring many similar boards
+  mostly reuses patterns from the solver cache.
+
+  Usage: java BoardAnalyzer <corpus file>... prints average scores and throughput.
+ */
+public final class BoardAnalyzer {
+    // a forced guess is weighted like this many extra clicks in the difficulty estimate
+    private static final int GUESS_WEIGHT = 10;
+
+    // to prevent instantiation
+    private BoardAnalyzer() {}
+
+    // scores for one board
+    public static final class Score {
+        private final int threeBV;
+        private final int openings;
+        private final int guesses;
+
+        public Score(int threeBV, int openings, int guesses) {
+            this.threeBV = threeBV;
+            this.openings = openings;
+            this.guesses = guesses;
+        }
+
+        public int getThreeBV() { return threeBV; }
+        public int getOpenings() { return openings; }
+        public int getGuesses() { return guesses; }
+        public int getDifficulty() { return threeBV + GUESS_WEIGHT * guesses; }
+    }
+
+    /*
+      Computes 3BV of a board whose mines are placed, labelling each opening with an
+      iterative flood fill so every cell is visited a constant number of times.
+     */
+    public static int threeBV(BoardModel model) {
+        return countClicks(model)[0];
+    }
+
+    // returns {3BV, openings}
+    private static int[] countClicks(BoardModel model) {
+        int[] neighborStart = model.getNeighborTable().getStart();
+        int[] neighbors = model.getNeighborTable().getNeighbors();
+        boolean[] marked = new boolean[model.getRows() * model.getCols()];
+        int[] stack = new int[marked.length];
+        int openings = 0;
+
+        for (int start = 0; start < marked.length; start++) {
+            if (marked[start] || isMine(model, start) || count(model, start) != 0) {
+                continue;
+            }
+            // to mark a whole opening and the numbers on its border
+            openings++;
+            int top = 0;
+            stack[top++] = start;
+            marked[start] = true;
+            while (top > 0) {
+                int cell = stack[--top];
+                for (int k = neighborStart[cell]; k < neighborStart[cell + 1]; k++) {
+                    int neighbor = neighbors[k];
+                    if (!marked[neighbor]) {
+                        marked[neighbor] = true;
+                        if (count(model, neighbor) == 0) {
+                            stack[top++] = neighbor;
+                        }
+                    }
+                }
+            }
+        }
+
+        // to add one click for every number outside the openings
+        int isolated = 0;
+        for (int cell = 0; cell < marked.length; cell++) {
+            if (!marked[cell] && !isMine(model, cell)) {
+                isolated++;
+            }
+        }
+        return new int[]{openings + isolated, openings};
+    }
+
+    /*
+      Scores a fresh board. Boards from a BoardCorpus are opened at their safe start, others
+      at the centre. The model is played to the end in the process.
+     */
+    public static Score score(BoardModel model) {
+        int start = model.getSafeStart() >= 0 ? model.getSafeStart()
+                                               : model.index(model.getRows() / 2, model.getCols() / 2);
+        model.reveal(start / model.getCols(), start % model.getCols());
+        int[] clicks = countClicks(model);
+
+        int guesses = 0;
+        while (!model.isGameOver()) {
+            BoardModel.Hint hint = FrontierSolver.findHint(model);
+            if (hint == null) {
+                guesses++;
+                int safe = firstHiddenSafeCell(model);
+                model.reveal(safe / model.getCols(), safe % model.getCols());
+            } else if (hint.isMine()) {
+                model.toggleFlag(hint.getRow(), hint.getCol());
+            } else {
+                model.reveal(hint.getRow(), hint.getCol());
+            }
+        }
+        return new Score(clicks[0], clicks[1], guesses);
+    }
+
+    // to score many boards on all cores
+    public static Score[] scoreAll(List<BoardModel> models) {
+        return models.parallelStream().map(BoardAnalyzer::score).toArray(Score[]::new);
+    }
+
+    public static Score[] scoreAll(BoardCorpus corpus) {
+        return IntStream.range(0, corpus.size()).parallel()
+                        .mapToObj(i -> score(corpus.board(i)))
+                        .toArray(Score[]::new);
+    }
+
+    private static int firstHiddenSafeCell(BoardModel model) {
+        for (int cell = 0; ; cell++) {
+            if (!isMine(model, cell) && !model.isRevealed(cell / model.getCols(), cell % model.getCols())) {
+                return cell;
+            }
+        }
+    }
+
+    private static boolean isMine(BoardModel model, int cell) {
+        return model.isMine(cell / model.getCols(), cell % model.getCols());
+    }
+
+    private static int count(BoardModel model, int cell) {
+        return model.getAdjacentMines(cell / model.getCols(), cell % model.getCols());
+    }
+
+    private static void report(String name, SolverCache cache) {
+        System.out.printf("  %s cache %,d hits, %,d misses, %,d evictions%n",
+                          name, cache.getHits(), cache.getMisses(), cache.getEvictions());
+    }
+
+    public static void main(String[] args) throws IOException {
+        for (String file : args) {
+            BoardCorpus corpus = BoardCorpus.open(Paths.get(file));
+            long start = System.nanoTime();
+            Score[] scores = scoreAll(corpus);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            long threeBV = 0;
+            long openings = 0;
+            long guesses = 0;
+            long difficulty = 0;
+            for (Score score : scores) {
+                threeBV += score.getThreeBV();
+                openings += score.getOpenings();
+                guesses += score.getGuesses();
+                difficulty += score.getDifficulty();
+            }
+            System.out.printf("%s: %,d boards in %.2fs (%,.0f boards/min)%n",
+                              file, scores.length, seconds, scores.length / seconds * 60);
+            System.out.printf("  average 3BV %.1f, openings %.1f, guesses %.2f, difficulty %.1f%n",
+                              (double) threeBV / scores.length, (double) openings / scores.length,
+                              (double) guesses / scores.length, (double) difficulty / scores.length);
+            report("pattern", FrontierSolver.getPatternCache());
+            report("position", FrontierSolver.getPositionCache());
+        }
+    }
+}
@@ -0,0 +1,211 @@
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+  Off-heap store for boards that are not currently being played.
+  Memory is allocated in large direct slabs split into fixed size slots, one board per slot,
+  so holding millions of idle boards adds no objects for the garbage collector to trace.
+  Slots come in size classes by cell count, powers of two from MIN_CLASS_CELLS up to the
+  largest board, each with its own slabs, so a small board does not take a slot sized for
+  the largest one. Freed slots go on their class's free list and are reused before a new
+  slab is allocated. A slot number carries its class: slot = index * classes + class.
+
+  Slot layout (offsets in bytes, planes sized for the class's cell count):
+    0  rows (short)          2  cols (short)
+    4  total mines (int)     8  remaining mines (int)
+    12 unrevealed safe (int) 16 status bits (byte): 1 = mines placed, 2 = lost
+                             17 topology (byte, ordinal)
+    HEADER_SIZE              mine plane, one bit per cell
+                             revealed plane, one bit per cell
+                             flag plane, one bit per cell
+                             adjacent mine counts, one nibble per cell
+
+  Not thread safe, each GameServer worker owns its own arena.
+ */
+public class BoardArena {
+    private static final int HEADER_SIZE = 20;
+    private static final int STATUS_PLACED = 1;
+    private static final int STATUS_LOST = 2;
+    // smallest class, a 8x8 board
+    private static final int MIN_CLASS_CELLS = 64;
+
+    private final int maxCells;
+    private final SizeClass[] classes;
+
+    // slots of one size class and the slabs that hold them
+    private static final class SizeClass {
+        private final int cells;
+        private final int planeBytes;
+        private final int countsOffset;
+        private final int slotSize;
+        private final int slotsPerSlab;
+        private final List<ByteBuffer> slabs = new ArrayList<>();
+        private int[] freeSlots = new int[0];
+        private int freeCount;
+
+        SizeClass(int cells, int slabBytes) {
+            this.cells = cells;
+            this.planeBytes = (cells + 7) / 8;
+            this.countsOffset = HEADER_SIZE + 3 * planeBytes;
+            this.slotSize = countsOffset + (cells + 1) / 2;
+            this.slotsPerSlab = Math.max(1, slabBytes / slotSize);
+        }
+    }
+
+    // slabBytes is the size of each slab, every class fits as many slots into it as it can
+    public BoardArena(int maxRows, int maxCols, int slabBytes) {
+        this.maxCells = maxRows * maxCols;
+        List<SizeClass> sizes = new ArrayList<>();
+        int cells = MIN_CLASS_CELLS;
+        while (cells < maxCells) {
+            sizes.add(new SizeClass(cells, slabBytes));
+            cells *= 2;
+        }
+        sizes.add(new SizeClass(maxCells, slabBytes));
+        this.classes = sizes.toArray(new SizeClass[0]);
+    }
+
+    // to reserve a slot for a board of the given cell count, allocating a new slab when its class has none free
+    public int allocate(int cells) {
+        if (cells > maxCells) {
+            throw new IllegalArgumentException("Board does not fit in an arena slot");
+        }
+        int index = 0;
+        while (classes[index].cells < cells) {
+            index++;
+        }
+        SizeClass size = classes[index];
+        if (size.freeCount == 0) {
+            int first = size.slabs.size() * size.slotsPerSlab;
+            size.slabs.add(ByteBuffer.allocateDirect(size.slotsPerSlab * size.slotSize));
+            if (size.freeSlots.length < size.slotsPerSlab) {
+                size.freeSlots = Arrays.copyOf(size.freeSlots, size.slotsPerSlab);
+            }
+            // push in reverse so slots are handed out in ascending order
+            for (int i = size.slotsPerSlab - 1; i >= 0; i--) {
+                size.freeSlots[size.freeCount++] = first + i;
+            }
+        }
+        return size.freeSlots[--size.freeCount] * classes.length + index;
+    }
+
+    public void free(int slot) {
+        SizeClass size = sizeClass(slot);
+        if (size.freeCount == size.freeSlots.length) {
+            size.freeSlots = Arrays.copyOf(size.freeSlots, size.freeCount * 2);
+        }
+        size.freeSlots[size.freeCount++] = slot / classes.length;
+    }
+
+    public boolean fits(BoardModel model) {
+        return model.getRows() * model.getCols() <= maxCells;
+    }
+
+    // to write a whole board into a slot allocated for at least its cell count
+    public void store(int slot, BoardModel model) {
+        SizeClass size = sizeClass(slot);
+        int rows = model.getRows();
+        int cols = model.getCols();
+        int cells = rows * cols;
+        if (cells > size.cells) {
+            throw new IllegalArgumentException("Board does not fit in an arena slot");
+        }
+        ByteBuffer slab = slab(slot);
+        int base = base(slot);
+
+        slab.putShort(base, (short) rows);
+        slab.putShort(base + 2, (short) cols);
+        slab.putInt(base + 4, model.getTotalMines());
+        slab.putInt(base + 8, model.getRemainingMines());
+        slab.putInt(base + 12, model.getUnrevealedSafeCells());
+        slab.put(base + 16, (byte) ((model.areMinesPlaced() ? STATUS_PLACED : 0)
+                                    | (model.isLost() ? STATUS_LOST : 0)));
+        slab.put(base + 17, (byte) model.getTopology().ordinal());
+
+        for (int cell = 0; cell < cells; cell += 8) {
+            int mines = 0;
+            int revealed = 0;
+            int flagged = 0;
+            for (int bit = 0; bit < 8 && cell + bit < cells; bit++) {
+                int row = (cell + bit) / cols;
+                int col = (cell + bit) % cols;
+                mines |= (model.isMine(row, col) ? 1 : 0) << bit;
+                revealed |= (model.isRevealed(row, col) ? 1 : 0) << bit;
+                flagged |= (model.isFlagged(row, col) ? 1 : 0) << bit;
+            }
+            int offset = base + HEADER_SIZE + cell / 8;
+            slab.put(offset, (byte) mines);
+            slab.put(offset + size.planeBytes, (byte) revealed);
+            slab.put(offset + 2 * size.planeBytes, (byte) flagged);
+        }
+        for (int cell = 0; cell < cells; cell += 2) {
+            int low = model.getAdjacentMines(cell / cols, cell % cols);
+            int high = cell + 1 < cells ? model.getAdjacentMines((cell + 1) / cols, (cell + 1) % cols) : 0;
+            slab.put(base + size.countsOffset + cell / 2, (byte) (low | high << 4));
+        }
+    }
+
+    // to rebuild a playable board from a slot, the slot stays allocated
+    public BoardModel load(int slot) {
+        SizeClass size = sizeClass(slot);
+        ByteBuffer slab = slab(slot);
+        int base = base(slot);
+        int rows = slab.getShort(base);
+        int cols = slab.getShort(base + 2);
+        BoardModel model = new BoardModel(rows, cols, slab.getInt(base + 4),
+                                          Topology.values()[slab.get(base + 17)]);
+
+        for (int cell = 0; cell < rows * cols; cell++) {
+            model.restoreCell(cell,
+                              bit(slab, base + HEADER_SIZE, cell),
+                              bit(slab, base + HEADER_SIZE + size.planeBytes, cell),
+                              bit(slab, base + HEADER_SIZE + 2 * size.planeBytes, cell),
+                              count(slab, base + size.countsOffset, cell));
+        }
+        int status = slab.get(base + 16);
+        model.restoreStatus(slab.getInt(base + 8), slab.getInt(base + 12),
+                            (status & STATUS_PLACED) != 0, (status & STATUS_LOST) != 0);
+        return model;
+    }
+
+    public int getAllocatedSlots() {
+        int allocated = 0;
+        for (SizeClass size : classes) {
+            allocated += size.slabs.size() * size.slotsPerSlab - size.freeCount;
+        }
+        return allocated;
+    }
+
+    public long getReservedBytes() {
+        long reserved = 0;
+        for (SizeClass size : classes) {
+            reserved += (long) size.slabs.size() * size.slotsPerSlab * size.slotSize;
+        }
+        return reserved;
+    }
+
+    private SizeClass sizeClass(int slot) {
+        return classes[slot % classes.length];
+    }
+
+    private ByteBuffer slab(int slot) {
+        SizeClass size = sizeClass(slot);
+        return size.slabs.get(slot / classes.length / size.slotsPerSlab);
+    }
+
+    private int base(int slot) {
+        SizeClass size = sizeClass(slot);
+        return (slot / classes.length % size.slotsPerSlab) * size.slotSize;
+    }
+
+    private static boolean bit(ByteBuffer slab, int planeOffset, int cell) {
+        return (slab.get(planeOffset + cell / 8) & (1 << (cell % 8))) != 0;
+    }
+
+    private static int count(ByteBuffer slab, int countsOffset, int cell) {
+        int packed = slab.get(countsOffset + cell / 2);
+        return (cell % 2 == 0 ? packed : packed >> 4) & 0xF;
+    }
+}
@@ -0,0 +1,208 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/*
+  File of pre-generated boards for one board shape, read through a memory map so a new
+  game can pick a board in constant time instead of generating one on the click path.
+  Every stored board is validated to be solvable without guessing from its safe start.
+
+  File layout (big endian):
+    header   magic, version, rows, cols, mines, board count, record size (ints)
+    records  safe start row and column (shorts), then the mine layout one bit per cell
+
+  Usage: java BoardCorpus <directory> <boards per preset> [rows cols mines]...
+  builds the small and large presets, plus any custom shapes given.
+ */
+public class BoardCorpus {
+    private static final int MAGIC = 0x4D534350; // "MSCP"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 7 * Integer.BYTES;
+    private static final int MAX_ATTEMPTS = 100_000;
+
+    private final MappedByteBuffer buffer;
+    private final int rows;
+    private final int cols;
+    private final int mines;
+    private final int count;
+    private final int recordSize;
+
+    private BoardCorpus(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Not a board corpus file");
+        }
+        this.rows = buffer.getInt(8);
+        this.cols = buffer.getInt(12);
+        this.mines = buffer.getInt(16);
+        this.count = buffer.getInt(20);
+        this.recordSize = buffer.getInt(24);
+        if (count <= 0 || (long) HEADER_SIZE + (long) count * recordSize > buffer.capacity()) {
+            throw new IllegalArgumentException("Board corpus file is empty or truncated");
+        }
+    }
+
+    // to map a corpus file for reading
+    public static BoardCorpus open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new BoardCorpus(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    // standard file name for a shape, used by the game to find a matching corpus
+    public static String fileName(int rows, int cols, int mines) {
+        return rows + "x" + cols + "-" + mines + ".msc";
+    }
+
+    // to load the board at the given position as a new game with its layout preset
+    public BoardModel board(int position) {
+        if (position < 0 || position >= count) {
+            throw new IndexOutOfBoundsException("No board " + position + " in corpus of " + count);
+        }
+        int offset = HEADER_SIZE + position * recordSize;
+        int safeRow = buffer.getShort(offset);
+        int safeCol = buffer.getShort(offset + 2);
+        boolean[] layout = new boolean[rows * cols];
+        for (int cell = 0; cell < layout.length; cell++) {
+            layout[cell] = (buffer.get(offset + 4 + cell / 8) & (1 << (cell % 8))) != 0;
+        }
+        BoardModel model = new BoardModel(rows, cols, mines);
+        model.presetMines(layout, safeRow, safeCol);
+        return model;
+    }
+
+    public BoardModel randomBoard(Random random) {
+        return board(random.nextInt(count));
+    }
+
+    public int getRows() { return rows; }
+    public int getCols() { return cols; }
+    public int getMines() { return mines; }
+    public int size() { return count; }
+
+    /*
+      Generates and validates boards in parallel, writing each one straight into its own
+      record of a memory mapped output file. Board i is derived from seed and i only, so the
+      same arguments always produce the same file.
+     */
+    public static void build(Path file, int rows, int cols, int mines, int boards, long seed)
+            throws IOException {
+        int recordSize = 4 + (rows * cols + 7) / 8;
+        long size = HEADER_SIZE + (long) boards * recordSize;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Corpus larger than 2 GB, use fewer boards");
+        }
+
+        Files.deleteIfExists(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            out.putInt(0, MAGIC);
+            out.putInt(4, VERSION);
+            out.putInt(8, rows);
+            out.putInt(12, cols);
+            out.putInt(16, mines);
+            out.putInt(20, boards);
+            out.putInt(24, recordSize);
+
+            IntStream.range(0, boards).parallel().forEach(i ->
+                generate(out, HEADER_SIZE + i * recordSize, rows, cols, mines, seed * 31 + i));
+            out.force();
+        } catch (RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    // to keep drawing boards until one can be solved from its safe start without guessing
+    private static void generate(ByteBuffer out, int offset, int rows, int cols, int mines, long seed) {
+        Random random = new Random(seed);
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            int safeRow = random.nextInt(rows);
+            int safeCol = random.nextInt(cols);
+            BoardModel model = new BoardModel(rows, cols, mines, random.nextLong());
+            model.placeMines(safeRow, safeCol);
+            boolean[] layout = layout(model);
+            if (isSolvableWithoutGuessing(model, safeRow, safeCol)) {
+                write(out, offset, safeRow, safeCol, layout);
+                return;
+            }
+        }
+        throw new IllegalStateException("No guess-free " + rows + "x" + cols + " board with "
+                                        + mines + " mines found in " + MAX_ATTEMPTS + " attempts");
+    }
+
+    // to play the board using only deductions from the frontier
+    private static boolean isSolvableWithoutGuessing(BoardModel model, int safeRow, int safeCol) {
+        model.reveal(safeRow, safeCol);
+        BoardModel.Hint hint;
+        while (!model.isGameOver() && (hint = FrontierSolver.findHint(model)) != null) {
+            if (hint.isMine()) {
+                model.toggleFlag(hint.getRow(), hint.getCol());
+            } else {
+                model.reveal(hint.getRow(), hint.getCol());
+            }
+        }
+        return model.isWon();
+    }
+
+    private static boolean[] layout(BoardModel model) {
+        boolean[] layout = new boolean[model.getRows() * model.getCols()];
+        for (int cell = 0; cell < layout.length; cell++) {
+            layout[cell] = model.isMine(cell / model.getCols(), cell % model.getCols());
+        }
+        return layout;
+    }
+
+    private static void write(ByteBuffer out, int offset, int safeRow, int safeCol, boolean[] layout) {
+        out.putShort(offset, (short) safeRow);
+        out.putShort(offset + 2, (short) safeCol);
+        for (int cell = 0; cell < layout.length; cell += 8) {
+            int bits = 0;
+            for (int bit = 0; bit < 8 && cell + bit < layout.length; bit++) {
+                bits |= (layout[cell + bit] ? 1 : 0) << bit;
+            }
+            out.put(offset + 4 + cell / 8, (byte) bits);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || (args.length - 2) % 3 != 0) {
+            System.err.println("Usage: java BoardCorpus <directory> <boards per preset> [rows cols mines]...");
+            System.exit(1);
+        }
+        Path directory = Paths.get(args[0]);
+        int boards = Integer.parseInt(args[1]);
+        Files.createDirectories(directory);
+
+        int[][] shapes = new int[2 + (args.length - 2) / 3][];
+        shapes[0] = new int[]{GameConstants.SMALL_BOARD_SIZE, GameConstants.SMALL_BOARD_SIZE,
+                              GameConstants.SMALL_BOARD_MINES};
+        shapes[1] = new int[]{GameConstants.LARGE_BOARD_SIZE, GameConstants.LARGE_BOARD_SIZE,
+                              GameConstants.LARGE_BOARD_MINES};
+        for (int i = 2; i < shapes.length; i++) {
+            int arg = 2 + (i - 2) * 3;
+            shapes[i] = new int[]{Integer.parseInt(args[arg]), Integer.parseInt(args[arg + 1]),
+                                  Integer.parseInt(args[arg + 2])};
+        }
+
+        for (int[] shape : shapes) {
+            Path file = directory.resolve(fileName(shape[0], shape[1], shape[2]));
+            long start = System.nanoTime();
+            try {
+                build(file, shape[0], shape[1], shape[2], boards, 1);
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                System.err.println("Skipping " + file + ": " + e.getMessage());
+                continue;
+            }
+            System.out.printf("%s: %,d boards in %.1fs%n", file, boards, (System.nanoTime() - start) / 1e9);
+        }
+    }
+}
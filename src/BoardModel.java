@@ -0,0 +1,495 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/*
+  Headless game state and rules for a single board.
+  GameBoard renders it with Swing cells, the server drives it over the network.
+  Cells are addressed by a flat index (row * cols + col) and stored in primitive planes.
+  Which cells are neighbours depends on the board's Topology; every neighbourhood walk
+  reads the shared NeighborTable of the board's shape.
+
+  The model also keeps the frontier up to date as cells are revealed and flagged: the set
+  of revealed numbers that still have a hidden, unflagged neighbour. Each move only touches
+  the changed cells and their neighbours, so solvers and hints can work from the frontier
+  without rescanning the board.
+
+  A Zobrist hash of the visible state (revealed counts, revealed mines and flags) is kept up
+  to date the same way, so equal positions can be recognised in constant time, for example
+  by the FrontierSolver cache. It does not depend on where the hidden mines are.
+ */
+public class BoardModel {
+    // hash states of a revealed mine and a flag, next to the revealed counts 0-8
+    private static final int MINE_STATE = 9;
+    private static final int FLAG_STATE = 10;
+
+    private final int rows;
+    private final int cols;
+    private final int totalMines;
+    private final Topology topology;
+    private final NeighborTable neighborTable;
+    private final int[] neighborStart;
+    private final int[] neighbors;
+    private final boolean[] mines;
+    private final boolean[] revealed;
+    private final boolean[] flagged;
+    private final byte[] adjacentMines;
+    private final Random random;
+
+    private int remainingMines;
+    private int unrevealedSafeCells;
+    private boolean minesPlaced;
+    private boolean lost;
+
+    // pre-generated layout used on the first reveal if that reveal is safe, see presetMines()
+    private boolean[] presetLayout;
+    private int safeStart = -1;
+
+    // cells whose state changed since the last call to drainChanges()
+    private int[] changed;
+    private int changedCount;
+    private final boolean[] isChanged;
+
+    // per cell counts of unrevealed neighbours (flagged ones included) and flagged neighbours
+    private final byte[] hiddenNeighbors;
+    private final byte[] flaggedNeighbors;
+
+    // frontier cells in no particular order, frontierPosition[cell] is -1 for non members
+    private final int[] frontier;
+    private final int[] frontierPosition;
+    private int frontierSize;
+
+    // Zobrist hash of the visible state, see cellKey()
+    private long hash;
+
+    public BoardModel(int rows, int cols, int mines) {
+        this(rows, cols, mines, Topology.SQUARE, new Random());
+    }
+
+    public BoardModel(int rows, int cols, int mines, long seed) {
+        this(rows, cols, mines, Topology.SQUARE, new Random(seed));
+    }
+
+    public BoardModel(int rows, int cols, int mines, Topology topology) {
+        this(rows, cols, mines, topology, new Random());
+    }
+
+    public BoardModel(int rows, int cols, int mines, Topology topology, long seed) {
+        this(rows, cols, mines, topology, new Random(seed));
+    }
+
+    private BoardModel(int rows, int cols, int mines, Topology topology, Random random) {
+        if (rows <= 0 || cols <= 0) {
+            throw new IllegalArgumentException("Board must have at least one cell");
+        }
+        if (mines < 0 || mines > rows * cols - 9) {
+            throw new IllegalArgumentException("Too many mines for a " + rows + "x" + cols + " board");
+        }
+        int size = rows * cols;
+        this.rows = rows;
+        this.cols = cols;
+        this.totalMines = mines;
+        this.topology = topology;
+        this.neighborTable = topology.neighbors(rows, cols);
+        this.neighborStart = neighborTable.getStart();
+        this.neighbors = neighborTable.getNeighbors();
+        this.mines = new boolean[size];
+        this.revealed = new boolean[size];
+        this.flagged = new boolean[size];
+        this.adjacentMines = new byte[size];
+        this.random = random;
+        this.remainingMines = mines;
+        this.unrevealedSafeCells = size - mines;
+        this.changed = new int[16];
+        this.isChanged = new boolean[size];
+        this.hiddenNeighbors = new byte[size];
+        this.flaggedNeighbors = new byte[size];
+        this.frontier = new int[size];
+        this.frontierPosition = new int[size];
+        rebuildIndex();
+    }
+
+    // to recompute the neighbour counters, frontier and hash from scratch
+    private void rebuildIndex() {
+        frontierSize = 0;
+        Arrays.fill(frontierPosition, -1);
+        hash = mix((long) rows << 40 | (long) cols << 8 | topology.ordinal());
+        for (int cell = 0; cell < mines.length; cell++) {
+            if (revealed[cell]) {
+                hash ^= cellKey(cell, mines[cell] ? MINE_STATE : adjacentMines[cell]);
+            } else if (flagged[cell]) {
+                hash ^= cellKey(cell, FLAG_STATE);
+            }
+            int hidden = 0;
+            int flags = 0;
+            for (int k = neighborStart[cell]; k < neighborStart[cell + 1]; k++) {
+                hidden += revealed[neighbors[k]] ? 0 : 1;
+                flags += flagged[neighbors[k]] ? 1 : 0;
+            }
+            hiddenNeighbors[cell] = (byte) hidden;
+            flaggedNeighbors[cell] = (byte) flags;
+            updateFrontier(cell);
+        }
+    }
+
+    // to add or remove a cell from the frontier after its counters changed
+    private void updateFrontier(int cell) {
+        boolean member = revealed[cell] && !mines[cell] && adjacentMines[cell] > 0
+                         && hiddenNeighbors[cell] > flaggedNeighbors[cell];
+        int position = frontierPosition[cell];
+        if (member && position < 0) {
+            frontierPosition[cell] = frontierSize;
+            frontier[frontierSize++] = cell;
+        } else if (!member && position >= 0) {
+            // to swap the last member into the freed position
+            int last = frontier[--frontierSize];
+            frontier[position] = last;
+            frontierPosition[last] = position;
+            frontierPosition[cell] = -1;
+        }
+    }
+
+    // to update the neighbours and hash for a cell that was just revealed
+    private void onRevealed(int cell) {
+        hash ^= cellKey(cell, mines[cell] ? MINE_STATE : adjacentMines[cell]);
+        for (int k = neighborStart[cell]; k < neighborStart[cell + 1]; k++) {
+            hiddenNeighbors[neighbors[k]]--;
+            updateFrontier(neighbors[k]);
+        }
+        updateFrontier(cell);
+    }
+
+    // to update the neighbours and hash for a cell that was just flagged or unflagged
+    private void onFlagChanged(int cell, int delta) {
+        hash ^= cellKey(cell, FLAG_STATE);
+        for (int k = neighborStart[cell]; k < neighborStart[cell + 1]; k++) {
+            int neighbor = neighbors[k];
+            flaggedNeighbors[neighbor] = (byte) (flaggedNeighbors[neighbor] + delta);
+            updateFrontier(neighbor);
+        }
+    }
+
+    // random but fixed key for one visible cell state, derived on the fly instead of stored in a table
+    private static long cellKey(int cell, int state) {
+        return mix((long) cell << 4 | state);
+    }
+
+    // SplitMix64 finalizer, spreads any input over all 64 bits
+    static long mix(long z) {
+        z = (z + 0x9E3779B97F4A7C15L) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // to place mines away from the first clicked cell and its neighbours
+    public void placeMines(int firstRow, int firstCol) {
+        int minesPlaced = 0;
+        int first = index(firstRow, firstCol);
+
+        while (minesPlaced < totalMines) {
+            int row = random.nextInt(rows);
+            int col = random.nextInt(cols);
+
+            // to avoid placing mine on first click or already mined cell
+            if (!mines[index(row, col)] && !isNeighborOrSelf(first, index(row, col))) {
+                mines[index(row, col)] = true;
+                minesPlaced++;
+            }
+        }
+
+        // to calculate numbers for all cells
+        calculateNumbers();
+        this.minesPlaced = true;
+    }
+
+    /*
+      Supplies a pre-generated layout, for example from a BoardCorpus, together with the cell
+      it was validated from. The layout is used if the first reveal and its neighbours are
+      mine free in it; otherwise mines are placed randomly as usual so the first click is
+      still always safe.
+     */
+    public void presetMines(boolean[] layout, int safeRow, int safeCol) {
+        int count = 0;
+        for (boolean mine : layout) {
+            count += mine ? 1 : 0;
+        }
+        if (layout.length != rows * cols || count != totalMines) {
+            throw new IllegalArgumentException("Layout does not match a " + rows + "x" + cols
+                                               + " board with " + totalMines + " mines");
+        }
+        presetLayout = layout;
+        safeStart = index(safeRow, safeCol);
+    }
+
+    // to place the first reveal's mines, preferring a preset layout when it is safe there
+    private void placeFirstMines(int firstRow, int firstCol) {
+        if (presetLayout != null && isSafeOpening(presetLayout, firstRow, firstCol)) {
+            System.arraycopy(presetLayout, 0, mines, 0, mines.length);
+            calculateNumbers();
+            minesPlaced = true;
+        } else {
+            placeMines(firstRow, firstCol);
+        }
+        presetLayout = null;
+    }
+
+    private boolean isSafeOpening(boolean[] layout, int row, int col) {
+        int cell = index(row, col);
+        if (layout[cell]) {
+            return false;
+        }
+        for (int k = neighborStart[cell]; k < neighborStart[cell + 1]; k++) {
+            if (layout[neighbors[k]]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isNeighborOrSelf(int cell, int other) {
+        if (cell == other) {
+            return true;
+        }
+        for (int k = neighborStart[cell]; k < neighborStart[cell + 1]; k++) {
+            if (neighbors[k] == other) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // function to calculate numbers for the cells
+    private void calculateNumbers() {
+        for (int cell = 0; cell < mines.length; cell++) {
+            if (!mines[cell]) {
+                adjacentMines[cell] = (byte) countAdjacentMines(cell);
+            }
+        }
+    }
+
+    // to count mines adjacent to a cell
+    private int countAdjacentMines(int cell) {
+        int count = 0;
+        for (int k = neighborStart[cell]; k < neighborStart[cell + 1]; k++) {
+            count += mines[neighbors[k]] ? 1 : 0;
+        }
+        return count;
+    }
+
+    /*
+      Reveals a cell, placing mines first if this is the opening move.
+      Empty cells cascade to their neighbours using an explicit stack so large boards
+      do not overflow the call stack. Returns false if a mine was hit.
+     */
+    public boolean reveal(int row, int col) {
+        if (isGameOver() || !isValidCell(row, col)) {
+            return true;
+        }
+        int start = index(row, col);
+        if (revealed[start] || flagged[start]) {
+            return true;
+        }
+        if (!minesPlaced) {
+            placeFirstMines(row, col);
+        }
+        if (mines[start]) {
+            revealed[start] = true;
+            markChanged(start);
+            onRevealed(start);
+            lost = true;
+            return false;
+        }
+
+        int[] stack = new int[16];
+        int top = 0;
+        stack[top++] = start;
+        while (top > 0) {
+            int cell = stack[--top];
+            if (revealed[cell] || flagged[cell]) {
+                continue;
+            }
+            revealed[cell] = true;
+            unrevealedSafeCells--;
+            markChanged(cell);
+            onRevealed(cell);
+
+            if (adjacentMines[cell] == 0) {
+                // to reveal all adjacent cells for empty cell
+                for (int k = neighborStart[cell]; k < neighborStart[cell + 1]; k++) {
+                    if (!revealed[neighbors[k]]) {
+                        if (top == stack.length) {
+                            stack = Arrays.copyOf(stack, top * 2);
+                        }
+                        stack[top++] = neighbors[k];
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    // to place or remove a flag on a hidden cell, returns true if the state changed
+    public boolean toggleFlag(int row, int col) {
+        if (isGameOver() || !isValidCell(row, col)) {
+            return false;
+        }
+        int cell = index(row, col);
+        if (revealed[cell]) {
+            return false;
+        }
+        flagged[cell] = !flagged[cell];
+        remainingMines += flagged[cell] ? -1 : 1;
+        markChanged(cell);
+        onFlagChanged(cell, flagged[cell] ? 1 : -1);
+        return true;
+    }
+
+    /*
+      Reveals every unflagged neighbour of a revealed number once the number of adjacent
+      flags matches it. Returns false if one of those neighbours was a mine.
+     */
+    public boolean chord(int row, int col) {
+        if (isGameOver() || !isValidCell(row, col) || !revealed[index(row, col)]) {
+            return true;
+        }
+        int cell = index(row, col);
+        if (flaggedNeighbors[cell] != adjacentMines[cell]) {
+            return true;
+        }
+        boolean safe = true;
+        for (int k = neighborStart[cell]; k < neighborStart[cell + 1]; k++) {
+            safe &= reveal(neighbors[k] / cols, neighbors[k] % cols);
+        }
+        return safe;
+    }
+
+    // to return the indices of cells changed since the previous call, used to build state diffs
+    public int[] drainChanges() {
+        int[] result = Arrays.copyOf(changed, changedCount);
+        for (int cell : result) {
+            isChanged[cell] = false;
+        }
+        changedCount = 0;
+        return result;
+    }
+
+    private void markChanged(int cell) {
+        if (isChanged[cell]) {
+            return;
+        }
+        isChanged[cell] = true;
+        if (changedCount == changed.length) {
+            changed = Arrays.copyOf(changed, changedCount * 2);
+        }
+        changed[changedCount++] = cell;
+    }
+
+    /*
+      Finds a move that follows from a single frontier number: either every unknown neighbour
+      is safe (the number already has enough flags) or every unknown neighbour is a mine.
+      Flags are trusted the same way chord trusts them. Runs in time proportional to the frontier, returns null if no such move exists.
+     */
+    public Hint findHint() {
+        if (isGameOver()) {
+            return null;
+        }
+        for (int i = 0; i < frontierSize; i++) {
+            int cell = frontier[i];
+            int unknown = hiddenNeighbors[cell] - flaggedNeighbors[cell];
+            int needed = adjacentMines[cell] - flaggedNeighbors[cell];
+            if (needed == 0 || needed == unknown) {
+                int target = firstUnknownNeighbor(cell);
+                return new Hint(target / cols, target % cols, needed != 0);
+            }
+        }
+        return null;
+    }
+
+    private int firstUnknownNeighbor(int cell) {
+        for (int k = neighborStart[cell]; k < neighborStart[cell + 1]; k++) {
+            if (!revealed[neighbors[k]] && !flagged[neighbors[k]]) {
+                return neighbors[k];
+            }
+        }
+        return -1;
+    }
+
+    // a cell that can be deduced as safe or as a mine
+    public static final class Hint {
+        private final int row;
+        private final int col;
+        private final boolean mine;
+
+        public Hint(int row, int col, boolean mine) {
+            this.row = row;
+            this.col = col;
+            this.mine = mine;
+        }
+
+        public int getRow() { return row; }
+        public int getCol() { return col; }
+        public boolean isMine() { return mine; }
+    }
+
+    // to overwrite one cell, used when a parked board is loaded back from a BoardArena
+    void restoreCell(int cell, boolean mine, boolean isRevealed, boolean isFlagged, int count) {
+        mines[cell] = mine;
+        revealed[cell] = isRevealed;
+        flagged[cell] = isFlagged;
+        adjacentMines[cell] = (byte) count;
+    }
+
+    // to overwrite the board counters, used together with restoreCell
+    void restoreStatus(int remaining, int unrevealedSafe, boolean placed, boolean isLost) {
+        remainingMines = remaining;
+        unrevealedSafeCells = unrevealedSafe;
+        minesPlaced = placed;
+        lost = isLost;
+        rebuildIndex();
+    }
+
+    // to mark cells as changed again after a reload so pending diffs are not lost
+    void restoreChanges(int[] cells) {
+        for (int cell : cells) {
+            markChanged(cell);
+        }
+    }
+
+    public boolean isValidCell(int row, int col) {
+        return row >= 0 && row < rows && col >= 0 && col < cols;
+    }
+
+    public int index(int row, int col) {
+        return row * cols + col;
+    }
+
+    public boolean isWon() {
+        return !lost && unrevealedSafeCells == 0;
+    }
+
+    public boolean isLost() {
+        return lost;
+    }
+
+    public boolean isGameOver() {
+        return lost || unrevealedSafeCells == 0;
+    }
+
+    public boolean isMine(int row, int col) { return mines[index(row, col)]; }
+    public boolean isRevealed(int row, int col) { return revealed[index(row, col)]; }
+    public boolean isFlagged(int row, int col) { return flagged[index(row, col)]; }
+    public int getAdjacentMines(int row, int col) { return adjacentMines[index(row, col)]; }
+    public boolean areMinesPlaced() { return minesPlaced; }
+    public int getSafeStart() { return safeStart; }
+    public int getRows() { return rows; }
+    public int getCols() { return cols; }
+    public int getTotalMines() { return totalMines; }
+    public Topology getTopology() { return topology; }
+    public NeighborTable getNeighborTable() { return neighborTable; }
+    public int getRemainingMines() { return remainingMines; }
+    public int getUnrevealedSafeCells() { return unrevealedSafeCells; }
+    public long getHash() { return hash; }
+    public int getFrontierSize() { return frontierSize; }
+    public int getFrontierCell(int i) { return frontier[i]; }
+    public int getHiddenNeighbors(int cell) { return hiddenNeighbors[cell]; }
+    public int getFlaggedNeighbors(int cell) { return flaggedNeighbors[cell]; }
+}
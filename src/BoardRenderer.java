@@ -0,0 +1,252 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import javax.imageio.ImageIO;
+
+/*
+  Draws board snapshots into images without a display, matching the look of Cell:
+  rounded cells, NUMBER_COLORS digits and the mine, flag and wrong flag icons.
+  A snapshot is one byte per cell holding a revealed count (0-8) or one of the state codes
+  below. Each state is drawn once into a tile, so rendering a frame is a series of raster
+  copies. Renderers are immutable and can be shared between threads.
+ */
+public class BoardRenderer {
+    public static final byte HIDDEN = 9;
+    public static final byte FLAG = 10;
+    public static final byte MINE = 11;
+    public static final byte WRONG_FLAG = 12;
+
+    private static final int BOARD_BORDER = 2;
+
+    private final int cellSize;
+    private final Font font;
+    private final BufferedImage mineIcon;
+    private final BufferedImage flagIcon;
+    private final BufferedImage wrongIcon;
+    private final IndexColorModel palette;
+
+    // every cell state pre-rendered once, frames are assembled by copying these
+    private final Raster[] tiles;
+
+    public BoardRenderer(int cellSize) {
+        this.cellSize = cellSize;
+        this.font = GameConstants.BUTTON_FONT.deriveFont(
+                GameConstants.BUTTON_FONT.getSize2D() * cellSize / GameConstants.CELL_SIZE);
+        int iconSize = Math.max(1, cellSize - GameConstants.ICON_PADDING * cellSize / GameConstants.CELL_SIZE);
+        this.mineIcon = loadIcon(GameConstants.MINE_ICON_PATH, iconSize);
+        this.flagIcon = loadIcon(GameConstants.FLAG_ICON_PATH, iconSize);
+        this.wrongIcon = loadIcon(GameConstants.WRONG_ICON_PATH, iconSize);
+        this.palette = createPalette();
+
+        this.tiles = new Raster[WRONG_FLAG + 1];
+        for (byte state = 0; state <= WRONG_FLAG; state++) {
+            tiles[state] = toIndexed(renderTile(state)).getRaster();
+        }
+    }
+
+    // to load and scale an icon up front so rendering never waits on image loading
+    private static BufferedImage loadIcon(String path, int size) {
+        try (InputStream in = BoardRenderer.class.getResourceAsStream(path)) {
+            BufferedImage image = in == null ? null : ImageIO.read(in);
+            if (image == null) {
+                throw new IOException("missing " + path);
+            }
+            BufferedImage scaled = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = scaled.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g.drawImage(image, 0, 0, size, size, null);
+            g.dispose();
+            return scaled;
+        } catch (IOException e) {
+            System.err.println("Error loading images: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // to build a 256 colour palette holding the exact game colours, greys and a colour cube
+    private static IndexColorModel createPalette() {
+        List<Color> colors = new ArrayList<>();
+        colors.add(GameConstants.BACKGROUND_COLOR);
+        colors.add(GameConstants.PRIMARY_COLOR);
+        colors.add(GameConstants.CELL_BACKGROUND_COLOR);
+        colors.add(GameConstants.REVEALED_CELL_COLOR);
+        colors.add(GameConstants.MINE_CELL_COLOR);
+        colors.add(GameConstants.WRONG_FLAG_COLOR);
+        for (Color color : GameConstants.NUMBER_COLORS) {
+            colors.add(color);
+        }
+        // light greys for the antialiased cell edges
+        for (int grey = 190; grey <= 250; grey += 3) {
+            colors.add(new Color(grey, grey, grey));
+        }
+        for (int r = 0; r < 6; r++) {
+            for (int g = 0; g < 6; g++) {
+                for (int b = 0; b < 6; b++) {
+                    colors.add(new Color(r * 51, g * 51, b * 51));
+                }
+            }
+        }
+        byte[] reds = new byte[colors.size()];
+        byte[] greens = new byte[colors.size()];
+        byte[] blues = new byte[colors.size()];
+        for (int i = 0; i < colors.size(); i++) {
+            reds[i] = (byte) colors.get(i).getRed();
+            greens[i] = (byte) colors.get(i).getGreen();
+            blues[i] = (byte) colors.get(i).getBlue();
+        }
+        return new IndexColorModel(8, colors.size(), reds, greens, blues);
+    }
+
+    /*
+      Maps every pixel to its nearest palette entry. Java2D's own conversion uses a coarse
+      inverse colour table that turns the near white cell colours blue, and tiles are only
+      converted once, so an exact search is affordable.
+     */
+    private BufferedImage toIndexed(BufferedImage rgb) {
+        BufferedImage indexed = new BufferedImage(rgb.getWidth(), rgb.getHeight(),
+                                                  BufferedImage.TYPE_BYTE_INDEXED, palette);
+        WritableRaster raster = indexed.getRaster();
+        for (int y = 0; y < rgb.getHeight(); y++) {
+            for (int x = 0; x < rgb.getWidth(); x++) {
+                int pixel = rgb.getRGB(x, y);
+                int best = 0;
+                int bestDistance = Integer.MAX_VALUE;
+                for (int i = 0; i < palette.getMapSize(); i++) {
+                    int dr = palette.getRed(i) - (pixel >> 16 & 0xFF);
+                    int dg = palette.getGreen(i) - (pixel >> 8 & 0xFF);
+                    int db = palette.getBlue(i) - (pixel & 0xFF);
+                    int distance = dr * dr + dg * dg + db * db;
+                    if (distance < bestDistance) {
+                        best = i;
+                        bestDistance = distance;
+                    }
+                }
+                raster.setSample(x, y, 0, best);
+            }
+        }
+        return indexed;
+    }
+
+    // to capture the visible state of a board, showing the end of game view once it is over
+    public static byte[] snapshot(BoardModel model) {
+        byte[] cells = new byte[model.getRows() * model.getCols()];
+        boolean over = model.isGameOver();
+        for (int cell = 0; cell < cells.length; cell++) {
+            int row = cell / model.getCols();
+            int col = cell % model.getCols();
+            boolean mine = model.isMine(row, col);
+            boolean flagged = model.isFlagged(row, col);
+            if (over && model.isWon() && mine) {
+                cells[cell] = FLAG;
+            } else if (flagged) {
+                cells[cell] = over && !mine ? WRONG_FLAG : FLAG;
+            } else if (model.isRevealed(row, col) || over) {
+                cells[cell] = mine ? MINE : (byte) model.getAdjacentMines(row, col);
+            } else {
+                cells[cell] = HIDDEN;
+            }
+        }
+        return cells;
+    }
+
+    public int imageWidth(int cols) {
+        return cols * cellSize + 2 * BOARD_BORDER;
+    }
+
+    public int imageHeight(int rows) {
+        return rows * cellSize + 2 * BOARD_BORDER;
+    }
+
+    // frames use the fixed palette, which both PNG and GIF store at one byte per pixel
+    public BufferedImage createIndexedImage(int rows, int cols) {
+        return new BufferedImage(imageWidth(cols), imageHeight(rows),
+                                 BufferedImage.TYPE_BYTE_INDEXED, palette);
+    }
+
+    // to draw a snapshot into an image created by createIndexedImage
+    public void render(byte[] cells, int rows, int cols, BufferedImage target) {
+        Graphics2D g = target.createGraphics();
+        g.setColor(GameConstants.PRIMARY_COLOR);
+        g.fillRect(0, 0, target.getWidth(), target.getHeight());
+        g.dispose();
+
+        WritableRaster raster = target.getRaster();
+        for (int cell = 0; cell < cells.length; cell++) {
+            raster.setDataElements(BOARD_BORDER + (cell % cols) * cellSize,
+                                   BOARD_BORDER + (cell / cols) * cellSize, tiles[cells[cell]]);
+        }
+    }
+
+    // pixel offset of a row or column, used to crop frames to the cells that changed
+    public int cellOffset(int index) {
+        return BOARD_BORDER + index * cellSize;
+    }
+
+    public int getCellSize() {
+        return cellSize;
+    }
+
+    // to draw one cell state the way Cell paints it
+    private BufferedImage renderTile(byte state) {
+        BufferedImage tile = new BufferedImage(cellSize, cellSize, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = tile.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setColor(GameConstants.BACKGROUND_COLOR);
+        g.fillRect(0, 0, cellSize, cellSize);
+
+        int arc = Math.max(2, 8 * cellSize / GameConstants.CELL_SIZE);
+        g.setColor(background(state));
+        g.fillRoundRect(0, 0, cellSize - 1, cellSize - 1, arc, arc);
+        g.setColor(new Color(0, 0, 0, 20));
+        g.drawRoundRect(0, 0, cellSize - 1, cellSize - 1, arc, arc);
+
+        BufferedImage icon = icon(state);
+        if (icon != null) {
+            int size = icon.getWidth();
+            g.drawImage(icon, (cellSize - size) / 2, (cellSize - size) / 2, null);
+        } else if (state > 0 && state <= 8) {
+            String text = String.valueOf(state);
+            g.setFont(font);
+            FontMetrics metrics = g.getFontMetrics();
+            g.setColor(GameConstants.NUMBER_COLORS[state]);
+            g.drawString(text, (cellSize - metrics.stringWidth(text)) / 2,
+                         (cellSize - metrics.getHeight()) / 2 + metrics.getAscent());
+        }
+        g.dispose();
+        return tile;
+    }
+
+    private static Color background(byte state) {
+        switch (state) {
+            case HIDDEN:
+            case FLAG:
+                return GameConstants.CELL_BACKGROUND_COLOR;
+            case MINE:
+                return GameConstants.MINE_CELL_COLOR;
+            case WRONG_FLAG:
+                return GameConstants.WRONG_FLAG_COLOR;
+            default:
+                return GameConstants.REVEALED_CELL_COLOR;
+        }
+    }
+
+    private BufferedImage icon(byte state) {
+        switch (state) {
+            case FLAG:
+                return flagIcon;
+            case MINE:
+                return mineIcon;
+            case WRONG_FLAG:
+                return wrongIcon;
+            default:
+                return null;
+        }
+    }
+}
@@ -20,12 +20,12 @@ public class Cell extends JButton {
     static {
         try {
             // Load images from images folder
-            mineIcon = new ImageIcon(Cell.class.getResource("/images/mine.png"));
-            flagIcon = new ImageIcon(Cell.class.getResource("/images/flag.png"));
-            wrongIcon = new ImageIcon(Cell.class.getResource("/images/wrong.png"));
+            mineIcon = new ImageIcon(Cell.class.getResource(GameConstants.MINE_ICON_PATH));
+            flagIcon = new ImageIcon(Cell.class.getResource(GameConstants.FLAG_ICON_PATH));
+            wrongIcon = new ImageIcon(Cell.class.getResource(GameConstants.WRONG_ICON_PATH));
             
             // Scale images to fit cells
-            int iconSize = GameConstants.CELL_SIZE - 6; // Padding
+            int iconSize = GameConstants.CELL_SIZE - GameConstants.ICON_PADDING;
             mineIcon = scaleIcon(mineIcon, iconSize);
             flagIcon = scaleIcon(flagIcon, iconSize);
             wrongIcon = scaleIcon(wrongIcon, iconSize);
@@ -154,6 +154,12 @@ public class Cell extends JButton {
         }
     }
 
+    public void markSafeStart() {
+        if (!isRevealed) {
+            setBorder(BorderFactory.createLineBorder(GameConstants.ACCENT_COLOR, 2));
+        }
+    }
+
     public void highlight() {
         if (!isRevealed && !isFlagged) {
             setBackground(GameConstants.HOVER_CELL_COLOR);
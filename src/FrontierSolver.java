@@ -0,0 +1,378 @@
+import java.util.Arrays;
+
+/*
+  Finds safe cells and mines that only follow from several frontier numbers together, which
+  the single-number rule of BoardModel.findHint misses.
+
+  The unknown (hidden, unflagged) cells around the frontier split into components, groups
+  of cells linked by shared numbers. Each component is solved on its own by enumerating
+  every layout that satisfies its numbers: a cell that holds a mine in all of them is a
+  mine, a cell that is free in all of them is safe. Flags are trusted the same way chord
+  trusts them. Windows of one number and the numbers sharing cells with it are solved
+  first and whole components only when those fail; components larger than
+  MAX_COMPONENT_CELLS are left to the windows, which is sound but can miss deductions that
+  span the whole component.
+
+  Results are cached at two levels in shared SolverCaches. Components are keyed by their
+  structure alone (what each number still needs and which of the component's cells it
+  touches), so the same pattern anywhere on any board is solved once. Whole positions are
+  keyed by the board's Zobrist hash, so analysing a position again costs one lookup; they
+  live in a cache of their own so that one-off positions never push out common patterns.
+ */
+public final class FrontierSolver {
+    private static final int MAX_COMPONENT_CELLS = 24;
+    private static final long NO_HINT = -1;
+
+    private static final SolverCache PATTERNS = new SolverCache(GameConstants.SOLVER_CACHE_ENTRIES);
+    private static final SolverCache POSITIONS = new SolverCache(GameConstants.SOLVER_CACHE_ENTRIES);
+
+    // to prevent instantiation
+    private FrontierSolver() {}
+
+    public static SolverCache getPatternCache() {
+        return PATTERNS;
+    }
+
+    public static SolverCache getPositionCache() {
+        return POSITIONS;
+    }
+
+    /*
+      Returns a certainly safe cell if one can be deduced, otherwise a certain mine, or null.
+      Cheap single-number deductions are tried first.
+     */
+    public static BoardModel.Hint findHint(BoardModel model) {
+        if (model.isGameOver()) {
+            return null;
+        }
+        BoardModel.Hint hint = model.findHint();
+        if (hint != null) {
+            return hint;
+        }
+        SolverCache.Entry cached = POSITIONS.get(model.getHash());
+        long packed;
+        if (cached != null) {
+            packed = cached.getFirst();
+        } else {
+            packed = solve(model);
+            POSITIONS.put(model.getHash(), packed, 0);
+        }
+        if (packed == NO_HINT) {
+            return null;
+        }
+        int cell = (int) (packed >> 1);
+        return new BoardModel.Hint(cell / model.getCols(), cell % model.getCols(), (packed & 1) != 0);
+    }
+
+    /*
+      Returns cell << 1 | mine for the first deduction, preferring safe cells, or NO_HINT.
+      Windows of one number and the numbers overlapping it are tried first: their patterns
+      repeat across boards, so they are nearly always cached. Whole components are only
+      enumerated when no window yields a safe cell.
+     */
+    private static long solve(BoardModel model) {
+        Frontier frontier = new Frontier(model);
+        long mine = solveWindows(frontier);
+        if (mine != NO_HINT && (mine & 1) == 0) {
+            return mine;
+        }
+
+        int[] constraintStamp = new int[frontier.constraints];
+        int[] cellStamp = new int[frontier.cellCount];
+        int[] component = new int[frontier.constraints];
+        Arrays.fill(constraintStamp, -1);
+        Arrays.fill(cellStamp, -1);
+        for (int seed = 0; seed < frontier.constraints; seed++) {
+            if (constraintStamp[seed] >= 0) {
+                continue;
+            }
+            // to collect the numbers connected to seed through shared unknown cells
+            int size = 0;
+            int cells = 0;
+            constraintStamp[seed] = seed;
+            component[size++] = seed;
+            for (int head = 0; head < size; head++) {
+                int c = component[head];
+                for (int k = frontier.start[c]; k < frontier.start[c + 1]; k++) {
+                    int u = frontier.members[k];
+                    if (cellStamp[u] == seed) {
+                        continue;
+                    }
+                    cellStamp[u] = seed;
+                    cells++;
+                    for (int l = frontier.cellStart[u]; l < frontier.cellStart[u + 1]; l++) {
+                        int other = frontier.cellConstraints[l];
+                        if (constraintStamp[other] < 0) {
+                            constraintStamp[other] = seed;
+                            component[size++] = other;
+                        }
+                    }
+                }
+            }
+            if (cells > MAX_COMPONENT_CELLS) {
+                continue;
+            }
+            long result = solveGroup(frontier, component, size);
+            if (result != NO_HINT && (result & 1) == 0) {
+                return result;
+            }
+            if (mine == NO_HINT) {
+                mine = result;
+            }
+        }
+        return mine;
+    }
+
+    private static long solveWindows(Frontier frontier) {
+        long mine = NO_HINT;
+        int[] window = new int[frontier.constraints];
+        int[] stamp = new int[frontier.constraints];
+        Arrays.fill(stamp, -1);
+        for (int c = 0; c < frontier.constraints; c++) {
+            int size = 0;
+            stamp[c] = c;
+            window[size++] = c;
+            for (int k = frontier.start[c]; k < frontier.start[c + 1]; k++) {
+                int u = frontier.members[k];
+                for (int l = frontier.cellStart[u]; l < frontier.cellStart[u + 1]; l++) {
+                    int other = frontier.cellConstraints[l];
+                    if (stamp[other] != c) {
+                        stamp[other] = c;
+                        window[size++] = other;
+                    }
+                }
+            }
+            long result = solveGroup(frontier, window, size);
+            if (result != NO_HINT && (result & 1) == 0) {
+                return result;
+            }
+            if (mine == NO_HINT) {
+                mine = result;
+            }
+        }
+        return mine;
+    }
+
+    /*
+      Solves a group of numbers over the unknown cells they touch. Numbers and cells are put
+      in board order, which makes the key independent of where the pattern sits.
+     */
+    private static long solveGroup(Frontier frontier, int[] group, int size) {
+        Arrays.sort(group, 0, size);
+        int[] cells = new int[MAX_COMPONENT_CELLS];
+        int cellCount = 0;
+        for (int i = 0; i < size; i++) {
+            int c = group[i];
+            for (int k = frontier.start[c]; k < frontier.start[c + 1]; k++) {
+                int u = frontier.members[k];
+                if (indexOf(cells, cellCount, u) < 0) {
+                    if (cellCount == MAX_COMPONENT_CELLS) {
+                        return NO_HINT;
+                    }
+                    cells[cellCount++] = u;
+                }
+            }
+        }
+        // frontier cells are numbered in board order, so sorting their ids sorts by position
+        Arrays.sort(cells, 0, cellCount);
+
+        int[] needed = new int[size];
+        long[] masks = new long[size];
+        long key = BoardModel.mix(cellCount);
+        for (int i = 0; i < size; i++) {
+            int c = group[i];
+            needed[i] = frontier.needed[c];
+            for (int k = frontier.start[c]; k < frontier.start[c + 1]; k++) {
+                masks[i] |= 1L << indexOf(cells, cellCount, frontier.members[k]);
+            }
+            key = BoardModel.mix(key ^ masks[i]);
+            key = BoardModel.mix(key ^ needed[i]);
+        }
+
+        SolverCache.Entry cached = PATTERNS.get(key);
+        long mines;
+        long safe;
+        if (cached != null) {
+            mines = cached.getFirst();
+            safe = cached.getSecond();
+        } else {
+            Layouts layouts = new Layouts(cellCount, needed, masks);
+            layouts.enumerate(0, 0);
+            mines = layouts.count > 0 ? layouts.alwaysMine : 0;
+            safe = layouts.count > 0 ? layouts.alwaysSafe : 0;
+            PATTERNS.put(key, mines, safe);
+        }
+        if (safe != 0) {
+            return (long) frontier.cells[cells[Long.numberOfTrailingZeros(safe)]] << 1;
+        }
+        if (mines != 0) {
+            return (long) frontier.cells[cells[Long.numberOfTrailingZeros(mines)]] << 1 | 1;
+        }
+        return NO_HINT;
+    }
+
+    private static int indexOf(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // depth first enumeration of the layouts of one group, pruning broken numbers early
+    private static final class Layouts {
+        private final int cellCount;
+        private final int[] needed;
+        private final long[] masks;
+        private final int[] placed;
+        private final int[] open;
+        private long alwaysMine;
+        private long alwaysSafe;
+        private long count;
+
+        Layouts(int cellCount, int[] needed, long[] masks) {
+            this.cellCount = cellCount;
+            this.needed = needed;
+            this.masks = masks;
+            this.placed = new int[needed.length];
+            this.open = new int[needed.length];
+            this.alwaysMine = cellCount == Long.SIZE ? -1 : (1L << cellCount) - 1;
+            this.alwaysSafe = alwaysMine;
+            for (int i = 0; i < masks.length; i++) {
+                open[i] = Long.bitCount(masks[i]);
+            }
+        }
+
+        void enumerate(int cell, long layout) {
+            if (cell == cellCount) {
+                count++;
+                alwaysMine &= layout;
+                alwaysSafe &= ~layout;
+                return;
+            }
+            // once every cell has been both a mine and free nothing more can be learned
+            if (count > 0 && (alwaysMine | alwaysSafe) == 0) {
+                return;
+            }
+            long bit = 1L << cell;
+            boolean canBeFree = true;
+            boolean canBeMine = true;
+            for (int i = 0; i < masks.length; i++) {
+                if ((masks[i] & bit) != 0) {
+                    open[i]--;
+                    canBeFree &= placed[i] + open[i] >= needed[i];
+                    canBeMine &= placed[i] < needed[i];
+                }
+            }
+            if (canBeFree) {
+                enumerate(cell + 1, layout);
+            }
+            if (canBeMine) {
+                for (int i = 0; i < masks.length; i++) {
+                    if ((masks[i] & bit) != 0) {
+                        placed[i]++;
+                    }
+                }
+                enumerate(cell + 1, layout | bit);
+                for (int i = 0; i < masks.length; i++) {
+                    if ((masks[i] & bit) != 0) {
+                        placed[i]--;
+                    }
+                }
+            }
+            for (int i = 0; i < masks.length; i++) {
+                if ((masks[i] & bit) != 0) {
+                    open[i]++;
+                }
+            }
+        }
+    }
+
+    /*
+      Numbers on the frontier with the unknown cells around them, cells numbered in board
+      order. Both directions are stored in CSR form: the entries of item i are
+      start[i]..start[i+1]-1.
+     */
+    private static final class Frontier {
+        private final int constraints;
+        private final int cellCount;
+        private final int[] cells;
+        private final int[] needed;
+        private final int[] start;
+        private final int[] members;
+        private final int[] cellStart;
+        private final int[] cellConstraints;
+
+        Frontier(BoardModel model) {
+            int cols = model.getCols();
+            int[] neighborStart = model.getNeighborTable().getStart();
+            int[] neighbors = model.getNeighborTable().getNeighbors();
+            constraints = model.getFrontierSize();
+
+            // to gather the unknown neighbours of every frontier number, in board order
+            int[] numbers = new int[constraints];
+            for (int i = 0; i < constraints; i++) {
+                numbers[i] = model.getFrontierCell(i);
+            }
+            Arrays.sort(numbers);
+            int[] unknown = new int[constraints * 8];
+            int total = 0;
+            for (int number : numbers) {
+                for (int k = neighborStart[number]; k < neighborStart[number + 1]; k++) {
+                    if (isUnknown(model, neighbors[k])) {
+                        unknown[total++] = neighbors[k];
+                    }
+                }
+            }
+            int[] sorted = Arrays.copyOf(unknown, total);
+            Arrays.sort(sorted);
+            int distinct = 0;
+            for (int i = 0; i < total; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    sorted[distinct++] = sorted[i];
+                }
+            }
+            cellCount = distinct;
+            cells = Arrays.copyOf(sorted, distinct);
+
+            needed = new int[constraints];
+            start = new int[constraints + 1];
+            members = new int[total];
+            int count = 0;
+            for (int n = 0; n < constraints; n++) {
+                int number = numbers[n];
+                needed[n] = model.getAdjacentMines(number / cols, number % cols)
+                            - model.getFlaggedNeighbors(number);
+                for (int k = neighborStart[number]; k < neighborStart[number + 1]; k++) {
+                    if (isUnknown(model, neighbors[k])) {
+                        members[count++] = Arrays.binarySearch(cells, neighbors[k]);
+                    }
+                }
+                start[n + 1] = count;
+            }
+
+            // to invert number -> cells into cell -> numbers
+            cellStart = new int[cellCount + 1];
+            for (int member : members) {
+                cellStart[member + 1]++;
+            }
+            for (int u = 0; u < cellCount; u++) {
+                cellStart[u + 1] += cellStart[u];
+            }
+            int[] fill = Arrays.copyOf(cellStart, cellCount);
+            cellConstraints = new int[total];
+            for (int n = 0; n < constraints; n++) {
+                for (int m = start[n]; m < start[n + 1]; m++) {
+                    cellConstraints[fill[members[m]]++] = n;
+                }
+            }
+        }
+
+        private static boolean isUnknown(BoardModel model, int cell) {
+            int row = cell / model.getCols();
+            int col = cell % model.getCols();
+            return !model.isRevealed(row, col) && !model.isFlagged(row, col);
+        }
+    }
+}
@@ -9,11 +9,13 @@ import java.util.List;
  */
 public class GameBoard extends JPanel {
     private Cell[][] cells;
+    private final BoardModel model;
     private final int rows;
     private final int cols;
     private final int totalMines;
     private int remainingMines;
     private boolean firstClick;
+    private int clickCount;
     private final List<GameListener> gameListeners;
 
     public interface GameListener {
@@ -23,12 +25,26 @@ public class GameBoard extends JPanel {
     }
 
     public GameBoard(int size, int mines) {
-        this.rows = size;
-        this.cols = size;
-        this.totalMines = mines;
-        this.remainingMines = mines;
+        this(size, size, mines);
+    }
+
+    public GameBoard(int rows, int cols, int mines) {
+        this(new BoardModel(rows, cols, mines));
+    }
+
+    // to show a board whose model was prepared in advance, e.g. loaded from a BoardCorpus
+    public GameBoard(BoardModel model) {
+        // cells are laid out on a plain grid, which cannot show the shifted rows of hexagons
+        if (model.getTopology() == Topology.HEX) {
+            throw new IllegalArgumentException("hex boards cannot be shown in a GameBoard");
+        }
+        this.rows = model.getRows();
+        this.cols = model.getCols();
+        this.totalMines = model.getTotalMines();
+        this.remainingMines = model.getRemainingMines();
         this.firstClick = true;
         this.gameListeners = new ArrayList<>();
+        this.model = model;
 
         initializeBoard();
     }
@@ -49,6 +65,11 @@ public class GameBoard extends JPanel {
         }
     }
 
+    // to point out the cell a pre-generated board was validated from
+    if (model.getSafeStart() >= 0) {
+        cells[model.getSafeStart() / cols][model.getSafeStart() % cols].markSafeStart();
+    }
+
     // to set board size based on cell dimensions
     int boardWidth = cols * GameConstants.CELL_SIZE;
     int boardHeight = rows * GameConstants.CELL_SIZE;
@@ -56,88 +77,28 @@ public class GameBoard extends JPanel {
     setMinimumSize(new Dimension(boardWidth, boardHeight));
 }
 
-    private void placeMines(int firstRow, int firstCol) {
-        Random random = new Random();
-        int minesPlaced = 0;
-
-        while (minesPlaced < totalMines) {
-            int row = random.nextInt(rows);
-            int col = random.nextInt(cols);
-
-            // to avoid placing mine on first click or already mined cell
-            if (!cells[row][col].isMine() && 
-                (row < firstRow - 1 || row > firstRow + 1 || 
-                 col < firstCol - 1 || col > firstCol + 1)) {
-                cells[row][col].setMine(true);
-                minesPlaced++;
-            }
-        }
-
-        // to calculate numbers for all cells
-        calculateNumbers();
-    }
-
-    // function to calculate numbers for the cells
-    private void calculateNumbers() {
+    // to copy the mine layout from the model into the cells once it has been placed
+    private void syncLayout() {
         for (int i = 0; i < rows; i++) {
             for (int j = 0; j < cols; j++) {
-                if (!cells[i][j].isMine()) {
-                    cells[i][j].setAdjacentMines(countAdjacentMines(i, j));
-                }
+                cells[i][j].setMine(model.isMine(i, j));
+                cells[i][j].setAdjacentMines(model.getAdjacentMines(i, j));
             }
         }
     }
 
-    // to count mines adjacent to a cell
-    private int countAdjacentMines(int row, int col) {
-        int count = 0;
-        for (int i = -1; i <= 1; i++) {
-            for (int j = -1; j <= 1; j++) {
-                int newRow = row + i;
-                int newCol = col + j;
-                if (isValidCell(newRow, newCol) && cells[newRow][newCol].isMine()) {
-                    count++;
-                }
+    // to update the cells changed by the last move
+    private void syncChanges() {
+        for (int index : model.drainChanges()) {
+            Cell cell = cells[index / cols][index % cols];
+            if (model.isRevealed(cell.getRow(), cell.getCol())) {
+                cell.reveal();
+            } else if (model.isFlagged(cell.getRow(), cell.getCol())) {
+                cell.flag();
+            } else {
+                cell.unflag();
             }
         }
-        return count;
-    }
-
-    // to reveal a cell and its adjacent cells if empty
-    private void revealCell(int row, int col) {
-        if (!isValidCell(row, col) || cells[row][col].isRevealed() || cells[row][col].isFlagged()) {
-            return;
-        }
-
-        cells[row][col].reveal();
-
-        if (cells[row][col].getAdjacentMines() == 0) {
-            // to reveal all adjacent cells for empty cell
-            for (int i = -1; i <= 1; i++) {
-                for (int j = -1; j <= 1; j++) {
-                    revealCell(row + i, col + j);
-                }
-            }
-        }
-    }
-
-    private boolean isValidCell(int row, int col) {
-        return row >= 0 && row < rows && col >= 0 && col < cols;
-    }
-
-    //to checks if the game is won
-    private void checkWin() {
-        int unrevealed = 0;
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                if (!cells[i][j].isRevealed() && !cells[i][j].isMine()) {
-                    unrevealed++;
-                }
-            }
-        }
-        if (unrevealed == 0) {
-            gameOver(true);
-        }
     }
 
     // to handle game over 
@@ -185,14 +146,10 @@ public class GameBoard extends JPanel {
 
             if (e.getButton() == MouseEvent.BUTTON3) {
                 // right click - flag
-                if (!cell.isRevealed()) {
-                    if (cell.isFlagged()) {
-                        cell.unflag();
-                        remainingMines++;
-                    } else {
-                        cell.flag();
-                        remainingMines--;
-                    }
+                if (model.toggleFlag(cell.getRow(), cell.getCol())) {
+                    clickCount++;
+                    syncChanges();
+                    remainingMines = model.getRemainingMines();
                     // to notify mine count change
                     for (GameListener listener : gameListeners) {
                         listener.onMineCountChanged(remainingMines);
@@ -200,17 +157,20 @@ public class GameBoard extends JPanel {
                 }
             } else if (e.getButton() == MouseEvent.BUTTON1 && !cell.isFlagged()) {
                 // left click - reveal
+                if (!cell.isRevealed()) {
+                    clickCount++;
+                }
+                boolean safe = model.reveal(cell.getRow(), cell.getCol());
                 if (firstClick) {
-                    placeMines(cell.getRow(), cell.getCol());
+                    syncLayout();
                     firstClick = false;
                 }
+                syncChanges();
 
-                if (cell.isMine()) {
-                    cell.reveal();
+                if (!safe) {
                     gameOver(false);
-                } else {
-                    revealCell(cell.getRow(), cell.getCol());
-                    checkWin();
+                } else if (model.isWon()) {
+                    gameOver(true);
                 }
             }
         }
@@ -220,6 +180,15 @@ public class GameBoard extends JPanel {
         gameListeners.add(listener);
     }
 
+    // number of clicks that revealed or flagged something, used for the efficiency score
+    public int getClickCount() {
+        return clickCount;
+    }
+
+    public BoardModel getModel() {
+        return model;
+    }
+
      public int getBoardDimension() {
          return rows;
      }
@@ -37,6 +37,11 @@ public final class GameConstants {
         new Color(107, 114, 128)       // 8 - gray
     };
 
+    public static final String MINE_ICON_PATH = "/images/mine.png";
+    public static final String FLAG_ICON_PATH = "/images/flag.png";
+    public static final String WRONG_ICON_PATH = "/images/wrong.png";
+    public static final int ICON_PADDING = 6;
+
     public static final int MIN_WINDOW_WIDTH = 400;
     public static final int MIN_WINDOW_HEIGHT = 500;
     public static final int PANEL_PADDING = 5;
@@ -63,6 +68,7 @@ public final class GameConstants {
     public static final String GAME_OVER_TITLE = "Game Over";
     public static final String GAME_WON_MESSAGE = "Congratulations! You won!\nTime: %s";
     public static final String GAME_LOST_MESSAGE = "Game Over! You hit a mine!\nTime: %s";
+    public static final String GAME_STATS_MESSAGE = "\n3BV: %d   3BV/s: %.2f   Efficiency: %d%%";
     public static final String QUIT_CONFIRM_MESSAGE = "Are you sure you want to quit?";
     public static final String NEW_GAME_CONFIRM_MESSAGE = "Current game will be lost. Start new game?";
 
@@ -71,11 +77,18 @@ public final class GameConstants {
         "Right click to place/remove a flag",
         "Numbers show adjacent mines",
         "Flag all mines to win",
-        "First click is always safe"
+        "First click is always safe",
+        "A pink outlined cell opens a board solvable without guessing"
     };
 
     public static final int MAX_BOARD_SIZE = 50;
     public static final int MIN_BOARD_SIZE = 5;
     public static final int MAX_MINES_PERCENT = 90;
     public static final int MIN_MINES = 1;
+
+    // directory searched for pre-generated boards built with BoardCorpus
+    public static final String CORPUS_DIRECTORY = "corpus";
+
+    // solved frontier patterns and positions kept by FrontierSolver
+    public static final int SOLVER_CACHE_ENTRIES = 1 << 16;
 }
\ No newline at end of file
@@ -0,0 +1,434 @@
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+  Line based command protocol used to drive a BoardModel without the Swing UI.
+  One instance belongs to one session and owns that session's board.
+
+  Commands (case insensitive, one per line):
+    NEW rows cols mines [seed] [topology]
+                                 start a new board, topology is square (default), torus or hex
+    REVEAL row col               reveal a cell
+    FLAG row col                 place or remove a flag
+    CHORD row col                reveal the neighbours of a satisfied number
+    DIFF                         list cells changed since the previous DIFF
+    DUMP                         print the whole board
+    HINT                         suggest a cell that is certainly safe or a mine
+    PROB row col [ms]            estimate the chance that a cell is a mine
+    HOST name                    share the current board under a name for others to join
+    JOIN name                    play on a shared board together with its other players
+    QUIT                         close the session
+
+  Every command except DUMP answers with exactly one line. Moves answer "OK <status> <remaining mines>"
+  where status is P (playing), W (won) or L (lost). DIFF answers
+  "DIFF <status> <count> r c v ..." where v is the number of adjacent mines for a revealed
+  cell, F for a flag, H for a hidden cell and * for a revealed mine.
+  DUMP answers "BOARD <status> <rows> <cols>" followed by one line per row using the same
+  symbols, with '.' standing in for a hidden cell. HINT answers "HINT row col SAFE",
+  "HINT row col MINE" or "HINT NONE". PROB samples for the given milliseconds (5 by default)
+  and answers "PROB row col p low high" with a 95% interval, or "PROB NONE". Sampling stops
+  on the clock, so PROB is the one answer that differs from run to run, and a board with more
+  than PROBABILITY_CELLS_PER_MILLI cells per millisecond of budget is refused.
+
+  HOST needs a board whose first cell has been revealed. HOST and JOIN answer like a move;
+  from then on moves, DIFF and DUMP act on the shared SharedBoard and DIFF includes the
+  cells changed by the other players. HINT and PROB are not available on a shared board.
+  NEW or closing the session leaves it, and the last player to leave removes it.
+ */
+public class GameProtocol {
+    // largest board a session may create, keeps one client from exhausting the heap
+    public static final int MAX_CELLS = 1000 * 1000;
+    // sampling time for PROB; a server runs it on the selector thread, so it gets a tight cap
+    public static final int DEFAULT_PROBABILITY_BUDGET = 5;
+    public static final int MAX_PROBABILITY_BUDGET = 1000;
+    public static final int SERVER_PROBABILITY_BUDGET = 10;
+    // cells PROB can scan per millisecond of budget, larger boards are refused rather than left unanswered
+    public static final int PROBABILITY_CELLS_PER_MILLI = 5_000;
+
+    private final int maxProbabilityBudget;
+
+    private BoardModel model;
+    private boolean closed;
+
+    // set while the board is parked off-heap between commands
+    private BoardArena arena;
+    private int parkedSlot = -1;
+    private int[] parkedChanges;
+
+    // boards shared between the sessions of one server, and the one this session plays on
+    private final Map<String, SharedBoard> lobby;
+    private SharedBoard shared;
+    private SharedBoard.Changes sharedChanges;
+    private String sharedName;
+
+    public GameProtocol() {
+        this(MAX_PROBABILITY_BUDGET, new ConcurrentHashMap<>());
+    }
+
+    // to cap the time a single PROB may sample, in milliseconds, and share boards through lobby
+    public GameProtocol(int maxProbabilityBudget, Map<String, SharedBoard> lobby) {
+        this.maxProbabilityBudget = maxProbabilityBudget;
+        this.lobby = lobby;
+    }
+
+    // to execute one command line and append the single line response to out
+    public void execute(CharSequence line, StringBuilder out) {
+        Tokenizer tokens = new Tokenizer(line);
+        String command = tokens.next();
+        if (command == null) {
+            out.append("ERR empty command\n");
+            return;
+        }
+        unpark();
+        try {
+            switch (command.toUpperCase()) {
+                case "NEW":
+                    newGame(tokens, out);
+                    break;
+                case "REVEAL":
+                case "FLAG":
+                case "CHORD":
+                    move(command.toUpperCase(), tokens, out);
+                    break;
+                case "DIFF":
+                    diff(out);
+                    break;
+                case "DUMP":
+                    dump(out);
+                    break;
+                case "HINT":
+                    hint(out);
+                    break;
+                case "PROB":
+                    probability(tokens, out);
+                    break;
+                case "HOST":
+                    host(tokens, out);
+                    break;
+                case "JOIN":
+                    join(tokens, out);
+                    break;
+                case "QUIT":
+                    closed = true;
+                    out.append("BYE\n");
+                    break;
+                default:
+                    out.append("ERR unknown command ").append(command).append('\n');
+            }
+        } catch (IllegalArgumentException e) {
+            out.append("ERR ").append(e.getMessage()).append('\n');
+        }
+    }
+
+    private void newGame(Tokenizer tokens, StringBuilder out) {
+        int rows = tokens.nextInt();
+        int cols = tokens.nextInt();
+        int mines = tokens.nextInt();
+        String seed = tokens.next();
+        String shape = tokens.next();
+        // the seed is optional, so a lone word after the mine count names the topology
+        if (seed != null && shape == null && Character.isLetter(seed.charAt(0))) {
+            shape = seed;
+            seed = null;
+        }
+        Topology topology = shape == null ? Topology.SQUARE : Topology.parse(shape);
+        if ((long) rows * cols > MAX_CELLS) {
+            throw new IllegalArgumentException("board larger than " + MAX_CELLS + " cells");
+        }
+        BoardModel created = seed == null ? new BoardModel(rows, cols, mines, topology)
+                                          : new BoardModel(rows, cols, mines, topology, Long.parseLong(seed));
+        leave();
+        model = created;
+        out.append("OK P ").append(mines).append('\n');
+    }
+
+    private void move(String command, Tokenizer tokens, StringBuilder out) {
+        if (shared != null) {
+            sharedMove(command, tokens, out);
+            return;
+        }
+        if (model == null) {
+            throw new IllegalArgumentException("no game, send NEW first");
+        }
+        int row = tokens.nextInt();
+        int col = tokens.nextInt();
+        if (!model.isValidCell(row, col)) {
+            throw new IllegalArgumentException("cell out of range");
+        }
+        switch (command) {
+            case "REVEAL":
+                model.reveal(row, col);
+                break;
+            case "FLAG":
+                model.toggleFlag(row, col);
+                break;
+            default:
+                model.chord(row, col);
+        }
+        out.append("OK ").append(status()).append(' ').append(model.getRemainingMines()).append('\n');
+    }
+
+    private void sharedMove(String command, Tokenizer tokens, StringBuilder out) {
+        int row = tokens.nextInt();
+        int col = tokens.nextInt();
+        if (!shared.isValidCell(row, col)) {
+            throw new IllegalArgumentException("cell out of range");
+        }
+        switch (command) {
+            case "REVEAL":
+                shared.reveal(row, col);
+                break;
+            case "FLAG":
+                shared.toggleFlag(row, col);
+                break;
+            default:
+                shared.chord(row, col);
+        }
+        out.append("OK ").append(status()).append(' ').append(shared.getRemainingMines()).append('\n');
+    }
+
+    private void host(Tokenizer tokens, StringBuilder out) {
+        String name = tokens.next();
+        if (name == null) {
+            throw new IllegalArgumentException("missing argument");
+        }
+        if (shared != null) {
+            throw new IllegalArgumentException("already in shared game " + sharedName);
+        }
+        if (model == null) {
+            throw new IllegalArgumentException("no game, send NEW first");
+        }
+        if (!model.areMinesPlaced()) {
+            throw new IllegalArgumentException("reveal a cell before sharing the board");
+        }
+        // the host subscribes before publishing, so a joiner leaving at once cannot empty the board
+        SharedBoard board = new SharedBoard(model);
+        SharedBoard.Changes changes = board.subscribe();
+        if (lobby.putIfAbsent(name, board) != null) {
+            board.unsubscribe(changes);
+            throw new IllegalArgumentException("game " + name + " already exists");
+        }
+        // to carry over the host's changes not yet reported by DIFF
+        for (int cell : model.drainChanges()) {
+            changes.mark(cell);
+        }
+        enter(name, board, changes);
+        out.append("OK ").append(status()).append(' ').append(shared.getRemainingMines()).append('\n');
+    }
+
+    private void join(Tokenizer tokens, StringBuilder out) {
+        String name = tokens.next();
+        if (name == null) {
+            throw new IllegalArgumentException("missing argument");
+        }
+        SharedBoard board = lobby.get(name);
+        if (board == null) {
+            throw new IllegalArgumentException("no game " + name);
+        }
+        if (board != shared) {
+            leave();
+            enter(name, board, board.subscribe());
+        }
+        out.append("OK ").append(status()).append(' ').append(shared.getRemainingMines()).append('\n');
+    }
+
+    private void enter(String name, SharedBoard board, SharedBoard.Changes changes) {
+        model = null;
+        shared = board;
+        sharedName = name;
+        sharedChanges = changes;
+    }
+
+    // to leave the shared board, removing it from the lobby once nobody plays on it
+    private void leave() {
+        if (shared != null) {
+            if (shared.unsubscribe(sharedChanges) == 0) {
+                lobby.remove(sharedName, shared);
+            }
+            shared = null;
+            sharedChanges = null;
+            sharedName = null;
+        }
+    }
+
+    private void diff(StringBuilder out) {
+        if (model == null && shared == null) {
+            throw new IllegalArgumentException("no game, send NEW first");
+        }
+        int[] changed = shared != null ? sharedChanges.drain() : model.drainChanges();
+        out.append("DIFF ").append(status()).append(' ').append(changed.length);
+        int cols = shared != null ? shared.getCols() : model.getCols();
+        for (int index : changed) {
+            int row = index / cols;
+            int col = index % cols;
+            out.append(' ').append(row).append(' ').append(col).append(' ').append(cellSymbol(row, col));
+        }
+        out.append('\n');
+    }
+
+    private void dump(StringBuilder out) {
+        if (model == null && shared == null) {
+            throw new IllegalArgumentException("no game, send NEW first");
+        }
+        int rows = shared != null ? shared.getRows() : model.getRows();
+        int cols = shared != null ? shared.getCols() : model.getCols();
+        out.append("BOARD ").append(status()).append(' ').append(rows).append(' ').append(cols).append('\n');
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                char symbol = cellSymbol(row, col);
+                out.append(symbol == 'H' ? '.' : symbol);
+            }
+            out.append('\n');
+        }
+    }
+
+    private void hint(StringBuilder out) {
+        if (shared != null) {
+            throw new IllegalArgumentException("not available on a shared board");
+        }
+        if (model == null) {
+            throw new IllegalArgumentException("no game, send NEW first");
+        }
+        BoardModel.Hint hint = FrontierSolver.findHint(model);
+        if (hint == null) {
+            out.append("HINT NONE\n");
+        } else {
+            out.append("HINT ").append(hint.getRow()).append(' ').append(hint.getCol())
+               .append(hint.isMine() ? " MINE\n" : " SAFE\n");
+        }
+    }
+
+    private void probability(Tokenizer tokens, StringBuilder out) {
+        if (shared != null) {
+            throw new IllegalArgumentException("not available on a shared board");
+        }
+        if (model == null) {
+            throw new IllegalArgumentException("no game, send NEW first");
+        }
+        int row = tokens.nextInt();
+        int col = tokens.nextInt();
+        String budget = tokens.next();
+        if (!model.isValidCell(row, col)) {
+            throw new IllegalArgumentException("cell out of range");
+        }
+        int millis = budget == null ? DEFAULT_PROBABILITY_BUDGET : Integer.parseInt(budget);
+        if (millis < 1 || millis > maxProbabilityBudget) {
+            throw new IllegalArgumentException("budget must be 1 to " + maxProbabilityBudget + " ms");
+        }
+        if ((long) model.getRows() * model.getCols() > (long) millis * PROBABILITY_CELLS_PER_MILLI) {
+            throw new IllegalArgumentException("board too large for a " + millis + " ms budget");
+        }
+        MineProbabilitySampler.Estimate estimate =
+                model.isRevealed(row, col) ? null : MineProbabilitySampler.estimate(model, millis, row, col);
+        if (estimate == null || Double.isNaN(estimate.getProbability(row, col))) {
+            out.append("PROB NONE\n");
+        } else {
+            out.append(String.format(Locale.ROOT, "PROB %d %d %.4f %.4f %.4f\n", row, col, estimate.getProbability(row, col),
+                                     estimate.getLow(row, col), estimate.getHigh(row, col)));
+        }
+    }
+
+    private char cellSymbol(int row, int col) {
+        if (shared != null) {
+            if (shared.isRevealed(row, col)) {
+                return shared.isMine(row, col) ? '*' : (char) ('0' + shared.getAdjacentMines(row, col));
+            }
+            return shared.isFlagged(row, col) ? 'F' : 'H';
+        }
+        if (model.isRevealed(row, col)) {
+            return model.isMine(row, col) ? '*' : (char) ('0' + model.getAdjacentMines(row, col));
+        }
+        return model.isFlagged(row, col) ? 'F' : 'H';
+    }
+
+    private char status() {
+        if (shared != null ? shared.isLost() : model.isLost()) {
+            return 'L';
+        }
+        return (shared != null ? shared.isWon() : model.isWon()) ? 'W' : 'P';
+    }
+
+    /*
+      Moves an idle board into the arena so it no longer occupies the heap.
+      It is loaded back transparently by the next command. Boards still waiting for their
+      first reveal are kept on the heap so a seeded layout stays reproducible.
+     */
+    public void park(BoardArena target) {
+        if (model == null || !model.areMinesPlaced() || parkedSlot >= 0 || !target.fits(model)) {
+            return;
+        }
+        parkedSlot = target.allocate(model.getRows() * model.getCols());
+        target.store(parkedSlot, model);
+        parkedChanges = model.drainChanges();
+        arena = target;
+        model = null;
+    }
+
+    private void unpark() {
+        if (parkedSlot >= 0) {
+            model = arena.load(parkedSlot);
+            model.restoreChanges(parkedChanges);
+            freeSlot();
+        }
+    }
+
+    // to give back what the session holds, called when it ends
+    public void release() {
+        freeSlot();
+        leave();
+    }
+
+    private void freeSlot() {
+        if (parkedSlot >= 0) {
+            arena.free(parkedSlot);
+            parkedSlot = -1;
+            parkedChanges = null;
+            arena = null;
+        }
+    }
+
+    public boolean isParked() {
+        return parkedSlot >= 0;
+    }
+
+    public BoardModel getModel() {
+        return model;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    // splits a command line on whitespace without allocating a regex or array
+    private static final class Tokenizer {
+        private final CharSequence line;
+        private int pos;
+
+        Tokenizer(CharSequence line) {
+            this.line = line;
+        }
+
+        String next() {
+            while (pos < line.length() && Character.isWhitespace(line.charAt(pos))) {
+                pos++;
+            }
+            if (pos == line.length()) {
+                return null;
+            }
+            int start = pos;
+            while (pos < line.length() && !Character.isWhitespace(line.charAt(pos))) {
+                pos++;
+            }
+            return line.subSequence(start, pos).toString();
+        }
+
+        int nextInt() {
+            String token = next();
+            if (token == null) {
+                throw new IllegalArgumentException("missing argument");
+            }
+            return Integer.parseInt(token);
+        }
+    }
+}
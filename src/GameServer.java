@@ -0,0 +1,326 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/*
+  Headless server hosting many independent games in one JVM.
+  One acceptor thread hands connections to a fixed set of worker threads, each running
+  its own non-blocking selector. Every connection is a session with its own board and
+  speaks the GameProtocol line protocol. Commands may be pipelined: all complete lines in
+  a read are executed and their responses are flushed in a single write. A session whose
+  client does not take its responses stops being read once MAX_PENDING_OUTPUT bytes wait,
+  and its remaining lines run only after the output has drained.
+  Boards of idle sessions are parked in a per-worker BoardArena until the next command.
+  Sessions on any worker can share a board through HOST and JOIN; shared boards live in one
+  lobby for the whole server and are lock-free, so no worker ever waits for another.
+ */
+public class GameServer {
+    public static final int DEFAULT_PORT = 7777;
+    private static final int READ_BUFFER_SIZE = 4096;
+    private static final int MAX_LINE_LENGTH = 256;
+    // unsent response bytes after which a session's further commands wait
+    private static final int MAX_PENDING_OUTPUT = 64 * 1024;
+    // output buffers larger than this are dropped once written rather than kept per session
+    private static final int RETAINED_OUTPUT_SIZE = 4096;
+    private static final long IDLE_SWEEP_MILLIS = 1000;
+    private static final int ARENA_SLAB_BYTES = 1 << 20;
+
+    // sessions idle for longer than this have their board parked off-heap
+    private final long idleMillis;
+
+    private final int port;
+    private final Worker[] workers;
+    private final Map<String, SharedBoard> lobby = new ConcurrentHashMap<>();
+    private volatile boolean running;
+    private ServerSocketChannel serverChannel;
+
+    public GameServer(int port, int workerCount) {
+        this(port, workerCount, 30_000);
+    }
+
+    public GameServer(int port, int workerCount, long idleMillis) {
+        this.port = port;
+        this.idleMillis = idleMillis;
+        this.workers = new Worker[workerCount];
+    }
+
+    // to bind the port and start the acceptor and worker threads
+    public void start() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port), 1024);
+        running = true;
+
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker();
+            Thread thread = new Thread(workers[i], "game-worker-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        Thread acceptor = new Thread(this::acceptLoop, "game-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public void stop() throws IOException {
+        running = false;
+        serverChannel.close();
+        for (Worker worker : workers) {
+            worker.selector.wakeup();
+        }
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    private void acceptLoop() {
+        int next = 0;
+        while (running) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                workers[next].register(channel);
+                next = (next + 1) % workers.length;
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("Error accepting connection: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // one selector thread serving a share of the sessions
+    private final class Worker implements Runnable {
+        private final Selector selector;
+        private final Queue<SocketChannel> pending = new ConcurrentLinkedQueue<>();
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        private final StringBuilder responses = new StringBuilder();
+        private final BoardArena arena = new BoardArena(GameConstants.MAX_BOARD_SIZE,
+                                                        GameConstants.MAX_BOARD_SIZE,
+                                                        ARENA_SLAB_BYTES);
+        private long lastSweep = System.currentTimeMillis();
+
+        Worker() throws IOException {
+            this.selector = Selector.open();
+        }
+
+        void register(SocketChannel channel) {
+            pending.add(channel);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    selector.select(IDLE_SWEEP_MILLIS);
+                    SocketChannel channel;
+                    while ((channel = pending.poll()) != null) {
+                        channel.register(selector, SelectionKey.OP_READ, new Session(lobby));
+                    }
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        try {
+                            if (key.isReadable()) {
+                                read(key);
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                write(key);
+                            }
+                        } catch (IOException e) {
+                            close(key);
+                        } catch (RuntimeException e) {
+                            // one failing session must not take the worker and its other sessions down
+                            System.err.println("Closing session after error: " + e);
+                            close(key);
+                        }
+                    }
+                    parkIdleSessions();
+                } catch (IOException e) {
+                    System.err.println("Error in game worker: " + e.getMessage());
+                }
+            }
+            for (SelectionKey key : selector.keys()) {
+                close(key);
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                System.err.println("Error closing game worker: " + e.getMessage());
+            }
+        }
+
+        // to move the boards of sessions that have gone quiet into the off-heap arena
+        private void parkIdleSessions() {
+            long now = System.currentTimeMillis();
+            if (now - lastSweep < IDLE_SWEEP_MILLIS) {
+                return;
+            }
+            lastSweep = now;
+            for (SelectionKey key : selector.keys()) {
+                Session session = (Session) key.attachment();
+                if (key.isValid() && now - session.lastActive >= idleMillis) {
+                    session.protocol.park(arena);
+                }
+            }
+        }
+
+        private void read(SelectionKey key) throws IOException {
+            SocketChannel channel = (SocketChannel) key.channel();
+            Session session = (Session) key.attachment();
+
+            readBuffer.clear();
+            int read = channel.read(readBuffer);
+            if (read < 0) {
+                close(key);
+                return;
+            }
+            readBuffer.flip();
+            session.lastActive = System.currentTimeMillis();
+
+            if (!executeLines(key, session, readBuffer)) {
+                return;
+            }
+            if (readBuffer.hasRemaining()) {
+                // to hold the rest of this read and stop reading until the client catches up
+                session.backlog = ByteBuffer.allocate(readBuffer.remaining());
+                session.backlog.put(readBuffer);
+                session.backlog.flip();
+            }
+            write(key);
+        }
+
+        /*
+          Executes the complete lines of input until it runs out or the session has
+          MAX_PENDING_OUTPUT bytes waiting to be sent, queueing the responses.
+          Returns false if the session was closed for sending an overlong line.
+         */
+        private boolean executeLines(SelectionKey key, Session session, ByteBuffer input) {
+            responses.setLength(0);
+            while (input.hasRemaining() && session.output.remaining() + responses.length() < MAX_PENDING_OUTPUT) {
+                char c = (char) (input.get() & 0xFF);
+                if (c == '\n') {
+                    session.protocol.execute(session.line, responses);
+                    session.line.setLength(0);
+                } else if (c != '\r') {
+                    if (session.line.length() == MAX_LINE_LENGTH) {
+                        close(key);
+                        return false;
+                    }
+                    session.line.append(c);
+                }
+            }
+            if (responses.length() > 0) {
+                session.queue(responses);
+            }
+            return true;
+        }
+
+        private void write(SelectionKey key) throws IOException {
+            SocketChannel channel = (SocketChannel) key.channel();
+            Session session = (Session) key.attachment();
+
+            while (true) {
+                channel.write(session.output);
+                if (session.output.hasRemaining()) {
+                    key.interestOps(session.backlog == null ? SelectionKey.OP_READ | SelectionKey.OP_WRITE
+                                                            : SelectionKey.OP_WRITE);
+                    return;
+                }
+                session.written();
+                if (session.backlog == null) {
+                    break;
+                }
+                // to run the lines held back while the output was over the cap
+                ByteBuffer backlog = session.backlog;
+                session.backlog = null;
+                if (!executeLines(key, session, backlog)) {
+                    return;
+                }
+                if (backlog.hasRemaining()) {
+                    session.backlog = backlog;
+                }
+            }
+            key.interestOps(SelectionKey.OP_READ);
+            if (session.protocol.isClosed()) {
+                close(key);
+            }
+        }
+
+        private void close(SelectionKey key) {
+            ((Session) key.attachment()).protocol.release();
+            key.cancel();
+            try {
+                key.channel().close();
+            } catch (IOException e) {
+                // channel is already gone
+            }
+        }
+    }
+
+    // per connection state, the protocol instance owns the session's board
+    private static final class Session {
+        private final GameProtocol protocol;
+        private final StringBuilder line = new StringBuilder();
+        private ByteBuffer output = ByteBuffer.allocate(0);
+        // received bytes not yet executed because too much output was waiting
+        private ByteBuffer backlog;
+        private long lastActive = System.currentTimeMillis();
+
+        Session(Map<String, SharedBoard> lobby) {
+            this.protocol = new GameProtocol(GameProtocol.SERVER_PROBABILITY_BUDGET, lobby);
+        }
+
+        // to append encoded responses after any bytes not yet written
+        void queue(CharSequence text) {
+            byte[] bytes = text.toString().getBytes(StandardCharsets.US_ASCII);
+            if (output.capacity() - output.limit() < bytes.length) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(output.remaining() + bytes.length, 256));
+                grown.put(output);
+                grown.flip();
+                output = grown;
+            }
+            int position = output.position();
+            output.position(output.limit());
+            output.limit(output.capacity());
+            output.put(bytes);
+            output.limit(output.position());
+            output.position(position);
+        }
+
+        // to reset the output once it is all written, letting go of a buffer a large response grew
+        void written() {
+            if (output.capacity() > RETAINED_OUTPUT_SIZE) {
+                output = ByteBuffer.allocate(0);
+            } else {
+                output.clear();
+                output.limit(0);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int workers = args.length > 1 ? Integer.parseInt(args[1])
+                                      : Runtime.getRuntime().availableProcessors();
+        long idleMillis = args.length > 2 ? Long.parseLong(args[2]) * 1000 : 30_000;
+
+        GameServer server = new GameServer(port, workers, idleMillis);
+        server.start();
+        System.out.println("Minesweeper server listening on port " + server.getPort()
+                           + " with " + workers + " workers");
+        Thread.currentThread().join();
+    }
+}
@@ -67,6 +67,10 @@ public class GameTimer {
         return String.format("%02d:%02d", minutes, remainingSeconds);
     }
 
+    public int getSeconds() {
+        return seconds;
+    }
+
     public boolean isRunning() {
         return isRunning;
     }
@@ -0,0 +1,156 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Random;
+
+/*
+  Loopback load generator for GameServer.
+  Opens many sessions from one selector thread, each playing random moves in pipelined
+  batches, and reports the number of commands answered per second.
+
+  Usage: java LoadClient [host] [port] [sessions] [seconds] [batch]
+ */
+public class LoadClient {
+    private static final int BOARD_SIZE = 16;
+    private static final int BOARD_MINES = 40;
+    // longest line sendBatch writes, a seeded NEW, with room to spare
+    private static final int MAX_COMMAND_LENGTH = 64;
+
+    private final Random random = new Random(42);
+    private final int batch;
+    private long responses;
+
+    private LoadClient(int batch) {
+        this.batch = batch;
+    }
+
+    // state of one simulated player
+    private static final class Player {
+        private final ByteBuffer output;
+        private final ByteBuffer input = ByteBuffer.allocate(64 * 1024);
+        private int outstanding;
+        private boolean needsNewGame = true;
+
+        // a batch is only sent once the previous one is answered, so one batch plus a NEW always fits
+        Player(int batch) {
+            this.output = ByteBuffer.allocate((batch + 1) * MAX_COMMAND_LENGTH);
+        }
+    }
+
+    private void run(String host, int port, int sessions, int seconds) throws IOException {
+        Selector selector = Selector.open();
+        for (int i = 0; i < sessions; i++) {
+            SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port));
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Player player = new Player(batch);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ, player);
+            sendBatch(key, player);
+        }
+        System.out.println("Opened " + sessions + " sessions");
+
+        long start = System.nanoTime();
+        long end = start + seconds * 1_000_000_000L;
+        long lastReport = start;
+        long lastResponses = 0;
+        while (System.nanoTime() < end) {
+            selector.select(100);
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                Player player = (Player) key.attachment();
+                if (key.isWritable()) {
+                    flush(key, player);
+                }
+                if (key.isReadable()) {
+                    receive(key, player);
+                }
+            }
+
+            long now = System.nanoTime();
+            if (now - lastReport >= 1_000_000_000L) {
+                System.out.printf("%,d commands/s%n", (responses - lastResponses) * 1_000_000_000L / (now - lastReport));
+                lastReport = now;
+                lastResponses = responses;
+            }
+        }
+
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Total: %,d commands in %.1fs (%,.0f commands/s)%n",
+                          responses, elapsed, responses / elapsed);
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+    }
+
+    // to queue a pipelined batch of moves, starting a new game first when needed
+    private void sendBatch(SelectionKey key, Player player) throws IOException {
+        StringBuilder commands = new StringBuilder();
+        if (player.needsNewGame) {
+            commands.append("NEW ").append(BOARD_SIZE).append(' ').append(BOARD_SIZE).append(' ')
+                    .append(BOARD_MINES).append(' ').append(random.nextLong()).append('\n');
+            player.needsNewGame = false;
+            player.outstanding++;
+        }
+        for (int i = 0; i < batch; i++) {
+            commands.append(random.nextInt(8) == 0 ? "FLAG " : "REVEAL ")
+                    .append(random.nextInt(BOARD_SIZE)).append(' ')
+                    .append(random.nextInt(BOARD_SIZE)).append('\n');
+            player.outstanding++;
+        }
+        player.output.put(commands.toString().getBytes(StandardCharsets.US_ASCII));
+        flush(key, player);
+    }
+
+    private void flush(SelectionKey key, Player player) throws IOException {
+        player.output.flip();
+        ((SocketChannel) key.channel()).write(player.output);
+        player.output.compact();
+        key.interestOps(player.output.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE
+                                                     : SelectionKey.OP_READ);
+    }
+
+    // to count response lines and send the next batch once the previous one is answered
+    private void receive(SelectionKey key, Player player) throws IOException {
+        if (((SocketChannel) key.channel()).read(player.input) < 0) {
+            throw new IOException("Server closed the connection");
+        }
+        player.input.flip();
+        int lineStart = player.input.position();
+        while (player.input.hasRemaining()) {
+            if (player.input.get() == '\n') {
+                // a finished game is answered with "OK W" or "OK L"
+                byte status = player.input.get(lineStart + 3);
+                if (status == 'W' || status == 'L') {
+                    player.needsNewGame = true;
+                }
+                lineStart = player.input.position();
+                player.outstanding--;
+                responses++;
+            }
+        }
+        player.input.position(lineStart);
+        player.input.compact();
+
+        if (player.outstanding == 0) {
+            sendBatch(key, player);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        String host = args.length > 0 ? args[0] : "127.0.0.1";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : GameServer.DEFAULT_PORT;
+        int sessions = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        int batch = args.length > 4 ? Integer.parseInt(args[4]) : 32;
+
+        new LoadClient(batch).run(host, port, sessions, seconds);
+    }
+}
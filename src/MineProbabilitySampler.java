@@ -0,0 +1,774 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+  Estimates how likely each hidden cell is to be a mine when exact enumeration of the
+  frontier is too expensive.
+
+  Every revealed number is a constraint on the hidden cells around it (flags are not trusted,
+  flagged cells count as hidden) and every configuration holds exactly the board's mines.
+  Hidden cells next to no number are interchangeable, so a chain only tracks how many mines
+  they hold. Independent Markov chains, one per core and at least two, each find a valid
+  configuration by min-conflicts repair and then repeatedly redraw one block: the cells of a
+  random number and of the numbers overlapping it. The block is redrawn from all of its valid
+  layouts, weighted by the ways the remaining mines fit in the interior, which keeps the
+  uniform distribution over valid boards and lets several mines shift at once.
+
+  Numbers that share no cells only interact through the mine total, so the frontier is split
+  into connected components that are repaired one at a time, the one holding the cell the
+  caller asks about first. On a board too large to repair in the budget, the chains sample
+  the components they finished and count the cells of the others with the interior; those
+  cells get no estimate.
+
+  The time each cell spends holding a mine is its estimate and the spread between chains
+  gives a 95% confidence interval. All work stops at the caller's deadline, so the same
+  call serves a 5 ms hint and a 500 ms analysis.
+ */
+public final class MineProbabilitySampler {
+    // chance of accepting a worsening flip while repairing, to escape local minima
+    private static final double REPAIR_NOISE = 0.05;
+    // two chains are the fewest that give a spread for the interval
+    private static final int MIN_CHAINS = 2;
+    private static final int DEADLINE_CHECK_INTERVAL = 256;
+    // cells scanned between deadline checks while building the problem
+    private static final int DEADLINE_CHECK_CELLS = 4096;
+    // block layouts are enumerated into a long bit mask
+    private static final int MAX_BLOCK_CELLS = 63;
+    // two sided 95% Student t quantiles for 1 to 10 degrees of freedom, 1.96 beyond
+    private static final double[] T_95 = {12.71, 4.30, 3.18, 2.78, 2.57, 2.45, 2.36, 2.31, 2.26, 2.23};
+
+    /*
+      Extra chains run on this pool while the caller runs the first one itself. A cached pool
+      never queues work, so every chain starts at once and gets the whole budget, even when
+      several callers sample at the same time.
+     */
+    private static final ExecutorService CHAINS = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "mine-probability-chain");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // to prevent instantiation
+    private MineProbabilitySampler() {}
+
+    // per cell probabilities, NaN for revealed cells and cells in components no chain repaired
+    public static final class Estimate {
+        private final int cols;
+        private final double[] probability;
+        private final double[] low;
+        private final double[] high;
+        private final long samples;
+        private final int chains;
+
+        Estimate(int cols, double[] probability, double[] low, double[] high, long samples, int chains) {
+            this.cols = cols;
+            this.probability = probability;
+            this.low = low;
+            this.high = high;
+            this.samples = samples;
+            this.chains = chains;
+        }
+
+        public double getProbability(int row, int col) { return probability[row * cols + col]; }
+        public double getLow(int row, int col) { return low[row * cols + col]; }
+        public double getHigh(int row, int col) { return high[row * cols + col]; }
+        public long getSamples() { return samples; }
+        public int getChains() { return chains; }
+    }
+
+    /*
+      Constraints shared read-only by all chains. Hidden cells touching a number are
+      numbered 0..constrained-1, the others only count towards interiorCells.
+      Lists are stored in CSR form: the entries of item i are start[i]..start[i+1]-1.
+      Components list their constraints and cells in the order they are repaired; when
+      focused, component 0 holds the cell the caller asked about.
+     */
+    private static final class Problem {
+        private final int[] constrainedCells;
+        private final int[] interiorCells;
+        private final int mines;
+        private final int[] targets;
+        private final int[] constraintStart;
+        private final int[] constraintCells;
+        private final int[] cellStart;
+        private final int[] cellConstraints;
+        private final int[] blockStart;
+        private final int[] blockCells;
+        private final int[] cellComponent;
+        private final int[] componentStart;
+        private final int[] componentConstraints;
+        private final int[] componentCellStart;
+        private final int[] componentCells;
+        private final boolean focused;
+
+        Problem(int[] constrainedCells, int[] interiorCells, int mines, int[] targets,
+                int[] constraintStart, int[] constraintCells, int[] cellStart, int[] cellConstraints,
+                int[] blockStart, int[] blockCells, int[] cellComponent, int[] componentStart,
+                int[] componentConstraints, int[] componentCellStart, int[] componentCells, boolean focused) {
+            this.constrainedCells = constrainedCells;
+            this.interiorCells = interiorCells;
+            this.mines = mines;
+            this.targets = targets;
+            this.constraintStart = constraintStart;
+            this.constraintCells = constraintCells;
+            this.cellStart = cellStart;
+            this.cellConstraints = cellConstraints;
+            this.blockStart = blockStart;
+            this.blockCells = blockCells;
+            this.cellComponent = cellComponent;
+            this.componentStart = componentStart;
+            this.componentConstraints = componentConstraints;
+            this.componentCellStart = componentCellStart;
+            this.componentCells = componentCells;
+            this.focused = focused;
+        }
+    }
+
+    /*
+      Samples until budgetMillis have passed. Returns null once the game is over or if no
+      chain found a configuration matching the visible numbers in time.
+     */
+    public static Estimate estimate(BoardModel model, long budgetMillis) {
+        return estimate(model, budgetMillis, -1, -1);
+    }
+
+    // to estimate with the component holding the given cell repaired before any other
+    public static Estimate estimate(BoardModel model, long budgetMillis, int row, int col) {
+        if (model.isGameOver()) {
+            return null;
+        }
+        long deadline = System.nanoTime() + budgetMillis * 1_000_000L;
+        Problem problem = buildProblem(model, row < 0 ? -1 : row * model.getCols() + col, deadline);
+        if (problem == null) {
+            return null;
+        }
+        int chains = Math.max(MIN_CHAINS, Runtime.getRuntime().availableProcessors());
+        // split streams are independent, unlike seeds a fixed step apart
+        SplittableRandom seeds = new SplittableRandom(System.nanoTime());
+
+        List<CompletableFuture<Chain>> futures = new ArrayList<>();
+        for (int i = 1; i < chains; i++) {
+            SplittableRandom random = seeds.split();
+            futures.add(CompletableFuture.supplyAsync(() -> new Chain(problem, random).run(deadline), CHAINS));
+        }
+        List<Chain> finished = new ArrayList<>();
+        Chain own = new Chain(problem, seeds.split()).run(deadline);
+        if (own.valid) {
+            finished.add(own);
+        }
+        for (CompletableFuture<Chain> future : futures) {
+            Chain chain = future.join();
+            if (chain.valid) {
+                finished.add(chain);
+            }
+        }
+        if (finished.isEmpty()) {
+            return null;
+        }
+        return combine(model, problem, finished);
+    }
+
+    // returns null if the deadline passes before the board is scanned
+    private static Problem buildProblem(BoardModel model, int focus, long deadline) {
+        int cols = model.getCols();
+        int cells = model.getRows() * cols;
+        int[] neighborStart = model.getNeighborTable().getStart();
+        int[] neighbors = model.getNeighborTable().getNeighbors();
+
+        // one constraint per revealed number that still touches a hidden cell,
+        // numbering those hidden cells as they are first seen
+        int[] constrainedIndex = new int[cells];
+        Arrays.fill(constrainedIndex, -1);
+        int constrained = 0;
+        IntList targets = new IntList();
+        IntList constraintStart = new IntList();
+        IntList constraintCells = new IntList();
+        constraintStart.add(0);
+        for (int cell = 0; cell < cells; cell++) {
+            if (cell % DEADLINE_CHECK_CELLS == 0 && System.nanoTime() >= deadline) {
+                return null;
+            }
+            if (!model.isRevealed(cell / cols, cell % cols) || model.getHiddenNeighbors(cell) == 0) {
+                continue;
+            }
+            for (int k = neighborStart[cell]; k < neighborStart[cell + 1]; k++) {
+                int neighbor = neighbors[k];
+                if (!model.isRevealed(neighbor / cols, neighbor % cols)) {
+                    if (constrainedIndex[neighbor] < 0) {
+                        constrainedIndex[neighbor] = constrained++;
+                    }
+                    constraintCells.add(constrainedIndex[neighbor]);
+                }
+            }
+            targets.add(model.getAdjacentMines(cell / cols, cell % cols));
+            constraintStart.add(constraintCells.size());
+        }
+
+        int[] constrainedCells = new int[constrained];
+        IntList interiorCells = new IntList();
+        for (int cell = 0; cell < cells; cell++) {
+            if (cell % DEADLINE_CHECK_CELLS == 0 && System.nanoTime() >= deadline) {
+                return null;
+            }
+            if (constrainedIndex[cell] >= 0) {
+                constrainedCells[constrainedIndex[cell]] = cell;
+            } else if (!model.isRevealed(cell / cols, cell % cols)) {
+                interiorCells.add(cell);
+            }
+        }
+        int[] start = constraintStart.toArray();
+        int[] members = constraintCells.toArray();
+        int[] cellStart = new int[constrained + 1];
+        int[] cellConstraints = invert(start, members, cellStart);
+
+        // the block of a constraint is every cell of the constraints sharing a cell with it
+        int[] stamp = new int[constrained];
+        Arrays.fill(stamp, -1);
+        IntList blockStart = new IntList();
+        IntList blockCells = new IntList();
+        blockStart.add(0);
+        for (int c = 0; c < start.length - 1; c++) {
+            if (c % DEADLINE_CHECK_INTERVAL == 0 && System.nanoTime() >= deadline) {
+                return null;
+            }
+            int first = blockCells.size();
+            for (int k = start[c]; k < start[c + 1]; k++) {
+                int u = members[k];
+                for (int l = cellStart[u]; l < cellStart[u + 1]; l++) {
+                    int other = cellConstraints[l];
+                    for (int m = start[other]; m < start[other + 1]; m++) {
+                        int v = members[m];
+                        if (stamp[v] != c && blockCells.size() - first < MAX_BLOCK_CELLS) {
+                            stamp[v] = c;
+                            blockCells.add(v);
+                        }
+                    }
+                }
+            }
+            blockStart.add(blockCells.size());
+        }
+
+        // numbers sharing a cell end up in one component, the focus cell's component is number 0
+        int[] parent = new int[constrained];
+        for (int u = 0; u < constrained; u++) {
+            parent[u] = u;
+        }
+        for (int c = 0; c < start.length - 1; c++) {
+            for (int k = start[c] + 1; k < start[c + 1]; k++) {
+                parent[root(parent, members[k])] = root(parent, members[start[c]]);
+            }
+        }
+        int[] rootComponent = new int[constrained];
+        Arrays.fill(rootComponent, -1);
+        int components = 0;
+        boolean focused = focus >= 0 && constrainedIndex[focus] >= 0;
+        if (focused) {
+            rootComponent[root(parent, constrainedIndex[focus])] = components++;
+        }
+        int[] cellComponent = new int[constrained];
+        for (int u = 0; u < constrained; u++) {
+            int r = root(parent, u);
+            if (rootComponent[r] < 0) {
+                rootComponent[r] = components++;
+            }
+            cellComponent[u] = rootComponent[r];
+        }
+        int[] constraintComponent = new int[start.length - 1];
+        for (int c = 0; c < constraintComponent.length; c++) {
+            constraintComponent[c] = cellComponent[members[start[c]]];
+        }
+        int[] componentStart = new int[components + 1];
+        int[] componentConstraints = group(constraintComponent, componentStart);
+        int[] componentCellStart = new int[components + 1];
+        int[] componentCells = group(cellComponent, componentCellStart);
+
+        return new Problem(constrainedCells, interiorCells.toArray(), model.getTotalMines(), targets.toArray(),
+                           start, members, cellStart, cellConstraints,
+                           blockStart.toArray(), blockCells.toArray(), cellComponent,
+                           componentStart, componentConstraints, componentCellStart, componentCells, focused);
+    }
+
+    // to find the representative of u, halving the path on the way
+    private static int root(int[] parent, int u) {
+        while (parent[u] != u) {
+            parent[u] = parent[parent[u]];
+            u = parent[u];
+        }
+        return u;
+    }
+
+    // to list the items 0..n-1 ordered by group, filling groupStart
+    private static int[] group(int[] groupOf, int[] groupStart) {
+        for (int g : groupOf) {
+            groupStart[g + 1]++;
+        }
+        for (int i = 0; i < groupStart.length - 1; i++) {
+            groupStart[i + 1] += groupStart[i];
+        }
+        int[] fill = Arrays.copyOf(groupStart, groupStart.length - 1);
+        int[] items = new int[groupOf.length];
+        for (int item = 0; item < groupOf.length; item++) {
+            items[fill[groupOf[item]]++] = item;
+        }
+        return items;
+    }
+
+    // to turn item -> members into member -> items, filling memberStart
+    private static int[] invert(int[] start, int[] members, int[] memberStart) {
+        for (int member : members) {
+            memberStart[member + 1]++;
+        }
+        for (int i = 0; i < memberStart.length - 1; i++) {
+            memberStart[i + 1] += memberStart[i];
+        }
+        int[] fill = Arrays.copyOf(memberStart, memberStart.length - 1);
+        int[] items = new int[members.length];
+        for (int item = 0; item < start.length - 1; item++) {
+            for (int k = start[item]; k < start[item + 1]; k++) {
+                items[fill[members[k]]++] = item;
+            }
+        }
+        return items;
+    }
+
+    // one independent Markov chain
+    private static final class Chain {
+        private final Problem problem;
+        private final SplittableRandom random;
+        private final boolean[] mine;
+        private final int[] sums;
+        // mines outside the repaired components, held by the interior and the unrepaired cells
+        private int poolMines;
+        private int poolCells;
+        // components 0..repaired-1 hold valid layouts and are the ones sampled
+        private int repaired;
+        private boolean balancing;
+
+        // constraints not currently satisfied while repairing, as an indexed set
+        private final int[] violated;
+        private final int[] violatedPosition;
+        private int violatedCount;
+
+        // time weighted mine occupancy since sampling started
+        private final long[] occupied;
+        private final long[] lastChange;
+        private long poolOccupied;
+        private long poolLastChange;
+        private long step;
+        private long sampleStart;
+        private boolean valid;
+
+        // scratch space for enumerating the layouts of one block
+        private final int[] remaining;
+        private final int[] block = new int[MAX_BLOCK_CELLS];
+        private final double[] poolWeight = new double[MAX_BLOCK_CELLS + 1];
+        private int blockSize;
+        private double totalWeight;
+        private long chosenLayout;
+        private int chosenMines;
+
+        Chain(Problem problem, SplittableRandom random) {
+            this.problem = problem;
+            this.random = random;
+            int constrained = problem.constrainedCells.length;
+            this.mine = new boolean[constrained];
+            this.sums = new int[problem.targets.length];
+            this.violated = new int[problem.targets.length];
+            this.violatedPosition = new int[problem.targets.length];
+            this.occupied = new long[constrained];
+            this.lastChange = new long[constrained];
+            this.remaining = new int[problem.targets.length];
+        }
+
+        Chain run(long deadline) {
+            if (!repair(deadline)) {
+                return this;
+            }
+            valid = true;
+            int constraints = problem.componentStart[repaired];
+            // half the redraws go to the focus cell's component, a fixed choice that keeps the distribution
+            int focusConstraints = problem.focused ? problem.componentStart[1] : 0;
+
+            // to discard the first quarter of the remaining time as burn-in
+            long burnInEnd = System.nanoTime() + (deadline - System.nanoTime()) / 4;
+            boolean sampling = false;
+            while (constraints > 0) {
+                if (step % DEADLINE_CHECK_INTERVAL == 0) {
+                    long now = System.nanoTime();
+                    if (now >= deadline) {
+                        break;
+                    }
+                    if (!sampling && now >= burnInEnd) {
+                        sampling = true;
+                        sampleStart = step;
+                        Arrays.fill(lastChange, step);
+                        Arrays.fill(occupied, 0);
+                        poolLastChange = step;
+                        poolOccupied = 0;
+                    }
+                }
+                step++;
+                int pick = focusConstraints > 0 && random.nextBoolean() ? random.nextInt(focusConstraints)
+                                                                        : random.nextInt(constraints);
+                redraw(problem.componentConstraints[pick]);
+            }
+
+            // a budget too short for burn-in falls back to averaging the whole walk,
+            // and the final state always counts as one sample
+            step++;
+            for (int u = 0; u < mine.length; u++) {
+                if (mine[u]) {
+                    occupied[u] += step - lastChange[u];
+                }
+            }
+            poolOccupied += poolMines * (step - poolLastChange);
+            return this;
+        }
+
+        /*
+          Repairs the components in order until one runs out of time. The first may use the
+          whole budget, later ones only the first half so the chain keeps time to sample.
+          Then the repaired cells are balanced until the pool can take the leftover mines.
+         */
+        private boolean repair(long deadline) {
+            int constrained = mine.length;
+            int interior = problem.interiorCells.length;
+            if (problem.mines > constrained + interior) {
+                return false;
+            }
+            Arrays.fill(violatedPosition, -1);
+            double density = (double) problem.mines / (constrained + interior);
+            int components = problem.componentStart.length - 1;
+            long halfway = System.nanoTime() + (deadline - System.nanoTime()) / 2;
+            while (repaired < components && (repaired == 0 || System.nanoTime() < halfway)
+                   && repairComponent(repaired, density, repaired == 0 ? deadline : halfway)) {
+                repaired++;
+            }
+            if (repaired == 0 && components > 0) {
+                return false;
+            }
+
+            // the cells of components left unrepaired count towards the pool like the interior
+            int active = problem.componentCellStart[repaired];
+            poolMines = problem.mines;
+            poolCells = interior + constrained - active;
+            for (int i = 0; i < active; i++) {
+                if (mine[problem.componentCells[i]]) {
+                    poolMines--;
+                }
+            }
+
+            balancing = true;
+            while (violatedCount > 0 || poolMines < 0 || poolMines > poolCells) {
+                if (++step % DEADLINE_CHECK_INTERVAL == 0 && System.nanoTime() >= deadline) {
+                    return false;
+                }
+                int u;
+                if (violatedCount > 0) {
+                    int c = violated[random.nextInt(violatedCount)];
+                    u = randomCellOf(c, sums[c] > problem.targets[c]);
+                } else {
+                    // the numbers hold but the pool cannot balance the count
+                    u = problem.componentCells[random.nextInt(active)];
+                    if (mine[u] != poolMines < 0) {
+                        continue;
+                    }
+                }
+                minConflictsFlip(u);
+            }
+            step = 0;
+            return true;
+        }
+
+        /*
+          Min-conflicts repair of one component from a random start: flips a cell of a broken
+          number towards its target until every number holds. Returns false, leaving the
+          component out of sampling, if the deadline passes first.
+         */
+        private boolean repairComponent(int component, double density, long deadline) {
+            for (int i = problem.componentCellStart[component]; i < problem.componentCellStart[component + 1]; i++) {
+                if (random.nextDouble() < density) {
+                    flip(problem.componentCells[i]);
+                }
+            }
+            for (int i = problem.componentStart[component]; i < problem.componentStart[component + 1]; i++) {
+                updateViolated(problem.componentConstraints[i]);
+            }
+
+            while (violatedCount > 0) {
+                if (++step % DEADLINE_CHECK_INTERVAL == 0 && System.nanoTime() >= deadline) {
+                    while (violatedCount > 0) {
+                        violatedPosition[violated[--violatedCount]] = -1;
+                    }
+                    return false;
+                }
+                int c = violated[random.nextInt(violatedCount)];
+                minConflictsFlip(randomCellOf(c, sums[c] > problem.targets[c]));
+            }
+            return true;
+        }
+
+        // to flip u, undoing it unless it breaks nothing more or the noise lets it through
+        private void minConflictsFlip(int u) {
+            int before = conflicts(u);
+            flip(u);
+            if (conflicts(u) > before && random.nextDouble() >= REPAIR_NOISE) {
+                flip(u);
+            }
+        }
+
+        // to pick a random mine (or free cell) among the cells of a constraint
+        private int randomCellOf(int c, boolean wantMine) {
+            int chosen = -1;
+            int seen = 0;
+            for (int k = problem.constraintStart[c]; k < problem.constraintStart[c + 1]; k++) {
+                int u = problem.constraintCells[k];
+                if (mine[u] == wantMine && random.nextInt(++seen) == 0) {
+                    chosen = u;
+                }
+            }
+            return chosen;
+        }
+
+        // broken numbers around u plus, once balancing, any mines the pool cannot hold
+        private int conflicts(int u) {
+            int total = 0;
+            for (int k = problem.cellStart[u]; k < problem.cellStart[u + 1]; k++) {
+                int c = problem.cellConstraints[k];
+                total += Math.abs(sums[c] - problem.targets[c]);
+            }
+            if (!balancing) {
+                return total;
+            }
+            if (poolMines < 0) {
+                total -= poolMines;
+            } else if (poolMines > poolCells) {
+                total += poolMines - poolCells;
+            }
+            return total;
+        }
+
+        // to move one mine between u and the pool while repairing
+        private void flip(int u) {
+            mine[u] = !mine[u];
+            int delta = mine[u] ? 1 : -1;
+            poolMines -= delta;
+            for (int k = problem.cellStart[u]; k < problem.cellStart[u + 1]; k++) {
+                sums[problem.cellConstraints[k]] += delta;
+                updateViolated(problem.cellConstraints[k]);
+            }
+        }
+
+        private void updateViolated(int c) {
+            boolean broken = sums[c] != problem.targets[c];
+            int at = violatedPosition[c];
+            if (broken && at < 0) {
+                violatedPosition[c] = violatedCount;
+                violated[violatedCount++] = c;
+            } else if (!broken && at >= 0) {
+                int last = violated[--violatedCount];
+                violated[at] = last;
+                violatedPosition[last] = at;
+                violatedPosition[c] = -1;
+            }
+        }
+
+        /*
+          Heat bath update of one block: clears it, enumerates every layout of its cells that
+          satisfies all numbers and picks one with probability proportional to the number of
+          ways the pool can hold the mines that are left.
+         */
+        private void redraw(int c) {
+            int first = problem.blockStart[c];
+            blockSize = problem.blockStart[c + 1] - first;
+            System.arraycopy(problem.blockCells, first, block, 0, blockSize);
+
+            int oldMines = 0;
+            long oldLayout = 0;
+            for (int i = 0; i < blockSize; i++) {
+                int u = block[i];
+                if (mine[u]) {
+                    oldMines++;
+                    oldLayout |= 1L << i;
+                    mine[u] = false;
+                    for (int k = problem.cellStart[u]; k < problem.cellStart[u + 1]; k++) {
+                        sums[problem.cellConstraints[k]]--;
+                    }
+                }
+                for (int k = problem.cellStart[u]; k < problem.cellStart[u + 1]; k++) {
+                    remaining[problem.cellConstraints[k]]++;
+                }
+            }
+            preparePoolWeights(oldMines);
+
+            totalWeight = 0;
+            chosenLayout = oldLayout;
+            chosenMines = oldMines;
+            enumerate(0, 0, 0);
+
+            for (int i = 0; i < blockSize; i++) {
+                int u = block[i];
+                for (int k = problem.cellStart[u]; k < problem.cellStart[u + 1]; k++) {
+                    remaining[problem.cellConstraints[k]] = 0;
+                }
+                boolean isMine = (chosenLayout >>> i & 1) != 0;
+                if (isMine) {
+                    mine[u] = true;
+                    for (int k = problem.cellStart[u]; k < problem.cellStart[u + 1]; k++) {
+                        sums[problem.cellConstraints[k]]++;
+                    }
+                }
+                if (isMine != ((oldLayout >>> i & 1) != 0)) {
+                    occupied[u] += isMine ? 0 : step - lastChange[u];
+                    lastChange[u] = step;
+                }
+            }
+            if (chosenMines != oldMines) {
+                poolOccupied += poolMines * (step - poolLastChange);
+                poolLastChange = step;
+                poolMines += oldMines - chosenMines;
+            }
+        }
+
+        // poolWeight[k] is C(pool, mines left with k in the block) relative to the current layout
+        private void preparePoolWeights(int oldMines) {
+            Arrays.fill(poolWeight, 0, blockSize + 1, 0);
+            poolWeight[oldMines] = 1;
+            // one more block mine leaves one fewer for the pool, C(n, m-1) = C(n, m) * m / (n-m+1)
+            for (int k = oldMines + 1; k <= blockSize; k++) {
+                int left = poolMines - (k - oldMines) + 1;
+                poolWeight[k] = left <= 0 ? 0 : poolWeight[k - 1] * left / (poolCells - left + 1);
+            }
+            // one fewer leaves one more, C(n, m+1) = C(n, m) * (n-m) / (m+1)
+            for (int k = oldMines - 1; k >= 0; k--) {
+                int left = poolMines + (oldMines - k) - 1;
+                poolWeight[k] = left >= poolCells ? 0 : poolWeight[k + 1] * (poolCells - left) / (left + 1);
+            }
+        }
+
+        // depth first over the block cells, pruning as soon as a number can no longer be met
+        private void enumerate(int i, long layout, int mines) {
+            if (i == blockSize) {
+                double weight = poolWeight[mines];
+                totalWeight += weight;
+                if (weight > 0 && random.nextDouble() * totalWeight < weight) {
+                    chosenLayout = layout;
+                    chosenMines = mines;
+                }
+                return;
+            }
+            int u = block[i];
+            int from = problem.cellStart[u];
+            int to = problem.cellStart[u + 1];
+            for (int k = from; k < to; k++) {
+                remaining[problem.cellConstraints[k]]--;
+            }
+            boolean free = true;
+            boolean asMine = true;
+            for (int k = from; k < to; k++) {
+                int c = problem.cellConstraints[k];
+                free &= sums[c] + remaining[c] >= problem.targets[c];
+                asMine &= sums[c] < problem.targets[c];
+            }
+            if (free) {
+                enumerate(i + 1, layout, mines);
+            }
+            if (asMine) {
+                for (int k = from; k < to; k++) {
+                    sums[problem.cellConstraints[k]]++;
+                }
+                enumerate(i + 1, layout | 1L << i, mines + 1);
+                for (int k = from; k < to; k++) {
+                    sums[problem.cellConstraints[k]]--;
+                }
+            }
+            for (int k = from; k < to; k++) {
+                remaining[problem.cellConstraints[k]]++;
+            }
+        }
+    }
+
+    // to average the chains and derive a confidence interval from their spread
+    private static Estimate combine(BoardModel model, Problem problem, List<Chain> chains) {
+        int cells = model.getRows() * model.getCols();
+        double[] probability = new double[cells];
+        double[] low = new double[cells];
+        double[] high = new double[cells];
+        Arrays.fill(probability, Double.NaN);
+        Arrays.fill(low, Double.NaN);
+        Arrays.fill(high, Double.NaN);
+
+        int k = chains.size();
+        long samples = 0;
+        double[] length = new double[k];
+        for (int i = 0; i < k; i++) {
+            length[i] = chains.get(i).step - chains.get(i).sampleStart;
+            samples += (long) length[i];
+        }
+
+        double[] estimates = new double[k];
+        for (int u = 0; u < problem.constrainedCells.length; u++) {
+            // only the chains that repaired u's component know anything about it
+            int known = 0;
+            for (int i = 0; i < k; i++) {
+                Chain chain = chains.get(i);
+                if (problem.cellComponent[u] < chain.repaired) {
+                    estimates[known++] = chain.occupied[u] / length[i];
+                }
+            }
+            if (known > 0) {
+                store(problem.constrainedCells[u], estimates, known, probability, low, high);
+            }
+        }
+        if (problem.interiorCells.length > 0) {
+            for (int i = 0; i < k; i++) {
+                estimates[i] = chains.get(i).poolOccupied / length[i] / chains.get(i).poolCells;
+            }
+            for (int cell : problem.interiorCells) {
+                store(cell, estimates, k, probability, low, high);
+            }
+        }
+        return new Estimate(model.getCols(), probability, low, high, samples, k);
+    }
+
+    // to store the mean of the first k estimates with its interval
+    private static void store(int cell, double[] estimates, int k,
+                              double[] probability, double[] low, double[] high) {
+        double quantile = k < 2 ? 0 : k - 1 <= T_95.length ? T_95[k - 2] : 1.96;
+        double mean = 0;
+        for (int i = 0; i < k; i++) {
+            mean += estimates[i];
+        }
+        mean /= k;
+        double variance = 0;
+        for (int i = 0; i < k; i++) {
+            variance += (estimates[i] - mean) * (estimates[i] - mean);
+        }
+        // a single chain shows no spread, so its interval stays fully open
+        double margin = k > 1 ? quantile * Math.sqrt(variance / (k - 1) / k) : 1;
+        probability[cell] = mean;
+        low[cell] = Math.max(0, mean - margin);
+        high[cell] = Math.min(1, mean + margin);
+    }
+
+    // growable int array for building the CSR lists
+    private static final class IntList {
+        private int[] values = new int[64];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int size() { return size; }
+        int[] toArray() { return Arrays.copyOf(values, size); }
+    }
+}
@@ -1,6 +1,13 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
 
 /*
 class to handle the main window, game initialization, and user interface.
@@ -12,6 +19,14 @@ public class Minisweeper extends JFrame {
     private JLabel mineCountLabel;
     private boolean gameStarted;
     private JComboBox<String> sizeSelector;
+    private final Map<String, BoardCorpus> corpora = new HashMap<>();
+    private final Random random = new Random();
+
+    // the next game's board, built in the background for the size it is keyed by
+    private GameBoard preparedBoard;
+    private String preparedSize;
+    // bumped whenever a preparation is started or discarded, so stale results are dropped
+    private int preparation;
 
     // to initializes the main game window.
     public Minisweeper() {
@@ -54,7 +69,7 @@ public class Minisweeper extends JFrame {
         // Set up menu bar 
         setJMenuBar(createMenuBar());
 
-        board = new GameBoard(GameConstants.SMALL_BOARD_SIZE, GameConstants.SMALL_BOARD_MINES);
+        board = createBoard(GameConstants.SMALL_BOARD_SIZE, GameConstants.SMALL_BOARD_MINES);
         board.addGameListener(new GameBoard.GameListener() {
             @Override
             public void onGameStart() {
@@ -87,6 +102,8 @@ public class Minisweeper extends JFrame {
         pack();
         setLocationRelativeTo(null);
         setResizable(false);
+
+        prepareNextBoard(getSelectedBoardSize());
     }
 
     private JMenuBar createMenuBar() {
@@ -231,9 +248,9 @@ public class Minisweeper extends JFrame {
         gameStarted = false;
         gameTimer.reset();
         
-        // to remove old board and create new one
+        // to remove old board and swap in the prepared one, building it now if there is none
         remove(board);
-        board = new GameBoard(boardSize, mineCount);
+        board = takePreparedBoard(size, boardSize, mineCount);
         board.addGameListener(new GameBoard.GameListener() {
             @Override
             public void onGameStart() {
@@ -259,6 +276,77 @@ public class Minisweeper extends JFrame {
         pack();
         revalidate();
         repaint();
+
+        prepareNextBoard(size);
+    }
+
+    /*
+      Starts building the board for the next game of this size while the current one is
+      played. The model, with its corpus layout when there is a corpus, is made on a daemon
+      thread; the cells are Swing components, so they are created afterwards on the event
+      thread, still long before the player asks for a new game.
+     */
+    private void prepareNextBoard(String size) {
+        int boardSize = size.equals("10x10") ? GameConstants.SMALL_BOARD_SIZE
+                                           : GameConstants.LARGE_BOARD_SIZE;
+        int mineCount = size.equals("10x10") ? GameConstants.SMALL_BOARD_MINES
+                                            : GameConstants.LARGE_BOARD_MINES;
+        int ticket = ++preparation;
+        preparedBoard = null;
+        preparedSize = size;
+        Thread worker = new Thread(() -> {
+            BoardModel model = createModel(boardSize, mineCount);
+            SwingUtilities.invokeLater(() -> {
+                if (ticket == preparation) {
+                    preparedBoard = new GameBoard(model);
+                }
+            });
+        }, "board-preparation");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    // to hand out the prepared board if it matches the size, otherwise to build one right away
+    private GameBoard takePreparedBoard(String size, int boardSize, int mineCount) {
+        GameBoard prepared = size.equals(preparedSize) ? preparedBoard : null;
+        discardPreparedBoard();
+        return prepared != null ? prepared : new GameBoard(createModel(boardSize, mineCount));
+    }
+
+    private void discardPreparedBoard() {
+        preparation++;
+        preparedBoard = null;
+        preparedSize = null;
+    }
+
+    // to create a board, taking a pre-generated one from the corpus when one is available
+    private GameBoard createBoard(int boardSize, int mineCount) {
+        return new GameBoard(createModel(boardSize, mineCount));
+    }
+
+    // called from the preparation thread too, the corpus buffer is only read with absolute gets
+    private BoardModel createModel(int boardSize, int mineCount) {
+        BoardCorpus corpus = loadCorpus(boardSize, mineCount);
+        return corpus != null ? corpus.randomBoard(random)
+                              : new BoardModel(boardSize, boardSize, mineCount);
+    }
+
+    // to map the corpus file for a board shape once, remembering when there is none
+    private synchronized BoardCorpus loadCorpus(int boardSize, int mineCount) {
+        String name = BoardCorpus.fileName(boardSize, boardSize, mineCount);
+        if (!corpora.containsKey(name)) {
+            BoardCorpus corpus = null;
+            Path file = Paths.get(GameConstants.CORPUS_DIRECTORY, name);
+            if (Files.isReadable(file)) {
+                try {
+                    corpus = BoardCorpus.open(file);
+                } catch (IOException | IllegalArgumentException e) {
+                    System.err.println("Error loading board corpus: " + e.getMessage());
+                }
+            }
+            corpora.put(name, corpus);
+        }
+        return corpora.get(name);
     }
 
     // to handle game over
@@ -268,6 +356,14 @@ public class Minisweeper extends JFrame {
             String.format(GameConstants.GAME_WON_MESSAGE, gameTimer.getFormattedTime()) :
             String.format(GameConstants.GAME_LOST_MESSAGE, gameTimer.getFormattedTime());
 
+        // to report speed and efficiency for a cleared board
+        if (won) {
+            int threeBV = BoardAnalyzer.threeBV(board.getModel());
+            double threeBVPerSecond = threeBV / (double) Math.max(1, gameTimer.getSeconds());
+            int efficiency = 100 * threeBV / Math.max(1, board.getClickCount());
+            message += String.format(GameConstants.GAME_STATS_MESSAGE, threeBV, threeBVPerSecond, efficiency);
+        }
+
 
 
         Object[] options = {"New Game", "Quit"};
@@ -314,6 +410,10 @@ public class Minisweeper extends JFrame {
 
     // to handle borad size changes
     private void handleBoardSizeChange(String newSize) {
+        // a board prepared for the old selection is of no use any more
+        if (!newSize.equals(preparedSize)) {
+            discardPreparedBoard();
+        }
         if (gameStarted) {
             UIManager.put("OptionPane.background", GameConstants.BACKGROUND_COLOR);
             UIManager.put("Panel.background", GameConstants.BACKGROUND_COLOR);
@@ -327,6 +427,7 @@ public class Minisweeper extends JFrame {
                 startNewGame(newSize);
             } else {
                 sizeSelector.setSelectedItem(board.getBoardSizeString());
+                prepareNextBoard(board.getBoardSizeString());
             }
         } else {
             startNewGame(newSize);
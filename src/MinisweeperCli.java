@@ -0,0 +1,81 @@
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/*
+  Headless entry point that plays a game from a stream of commands on stdin.
+  Uses the same commands as the GameServer (see GameProtocol), for example:
+
+    new 10 10 10 42
+    reveal 4 4
+    flag 0 0
+    chord 4 4
+    dump
+
+  Input is read in large blocks and every complete command in a block is executed before
+  the buffered responses are written, so piping in a script costs one write per block
+  rather than one per move. A seeded "new" makes the output fully deterministic, except for
+  PROB, whose sampling is bounded by time.
+ */
+public class MinisweeperCli {
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    private final GameProtocol protocol = new GameProtocol();
+    private final StringBuilder line = new StringBuilder();
+    private final StringBuilder responses = new StringBuilder();
+
+    // to run commands until the input ends or QUIT is received
+    public void run(InputStream in, OutputStream out) throws IOException {
+        byte[] block = new byte[BLOCK_SIZE];
+        int read;
+        while (!protocol.isClosed() && (read = in.read(block)) >= 0) {
+            executeBlock(block, read);
+            flush(out);
+        }
+
+        // to execute a final command without a trailing newline
+        if (!protocol.isClosed() && line.length() > 0) {
+            executeLine();
+            flush(out);
+        }
+    }
+
+    private void executeBlock(byte[] block, int length) {
+        for (int i = 0; i < length && !protocol.isClosed(); i++) {
+            char c = (char) (block[i] & 0xFF);
+            if (c == '\n') {
+                executeLine();
+            } else if (c != '\r') {
+                line.append(c);
+            }
+        }
+    }
+
+    // to skip blank lines and # comments so scripts can be annotated
+    private void executeLine() {
+        int start = 0;
+        while (start < line.length() && Character.isWhitespace(line.charAt(start))) {
+            start++;
+        }
+        if (start < line.length() && line.charAt(start) != '#') {
+            protocol.execute(line, responses);
+        }
+        line.setLength(0);
+    }
+
+    private void flush(OutputStream out) throws IOException {
+        if (responses.length() > 0) {
+            out.write(responses.toString().getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            responses.setLength(0);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        OutputStream out = new FileOutputStream(FileDescriptor.out);
+        new MinisweeperCli().run(System.in, out);
+    }
+}
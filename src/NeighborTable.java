@@ -0,0 +1,19 @@
+/*
+  Neighbours of every cell of one board shape, flattened CSR style: the neighbours of cell
+  are neighbors[start[cell]] to neighbors[start[cell + 1] - 1]. Hot loops read the two
+  arrays directly, so walking a neighbourhood needs no bounds checks or branches.
+  Tables are shared between boards through Topology and must never be modified.
+ */
+public final class NeighborTable {
+    private final int[] start;
+    private final int[] neighbors;
+
+    NeighborTable(int[] start, int[] neighbors) {
+        this.start = start;
+        this.neighbors = neighbors;
+    }
+
+    public int[] getStart() { return start; }
+    public int[] getNeighbors() { return neighbors; }
+    public int degree(int cell) { return start[cell + 1] - start[cell]; }
+}
@@ -0,0 +1,300 @@
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+
+/*
+  Turns replays into images without a display.
+  A replay is a MinisweeperCli command script starting with a seeded "new", so replaying it
+  reproduces the game exactly. Every command becomes one frame. Frames are rendered in
+  parallel into reused image buffers and then written as a PNG sequence or an animated GIF.
+
+  Usage:
+    java ReplayExporter png <replay> <output directory>
+    java ReplayExporter gif <replay> <output.gif> [frame delay ms]
+    java ReplayExporter thumbs <output directory> <replay>...
+ */
+public class ReplayExporter {
+    private static final int DEFAULT_FRAME_DELAY = 200;
+    private static final int THUMBNAIL_CELL_SIZE = 10;
+    // higher quality means less deflate effort, 0.8 still compresses flat board images well
+    private static final float PNG_COMPRESSION_QUALITY = 0.8f;
+
+    private final BoardRenderer renderer;
+
+    public ReplayExporter(int cellSize) {
+        this.renderer = new BoardRenderer(cellSize);
+    }
+
+    // the snapshots of one replayed game
+    public static final class Replay {
+        private final int rows;
+        private final int cols;
+        private final List<byte[]> frames;
+
+        Replay(int rows, int cols, List<byte[]> frames) {
+            this.rows = rows;
+            this.cols = cols;
+            this.frames = frames;
+        }
+
+        public int getRows() { return rows; }
+        public int getCols() { return cols; }
+        public List<byte[]> getFrames() { return frames; }
+    }
+
+    // to play a replay script and snapshot the board after every command of its first game
+    public static Replay load(Path file) throws IOException {
+        GameProtocol protocol = new GameProtocol();
+        StringBuilder ignored = new StringBuilder();
+        List<byte[]> frames = new ArrayList<>();
+        BoardModel model = null;
+
+        for (String line : Files.readAllLines(file)) {
+            String command = line.trim();
+            if (command.isEmpty() || command.startsWith("#")) {
+                continue;
+            }
+            if (!frames.isEmpty() && command.regionMatches(true, 0, "new", 0, 3)) {
+                break;
+            }
+            // a shared board is played by others too, so its moves cannot be replayed from one script
+            if (command.regionMatches(true, 0, "host", 0, 4) || command.regionMatches(true, 0, "join", 0, 4)) {
+                throw new IllegalArgumentException("replays cannot HOST or JOIN shared boards");
+            }
+            protocol.execute(command, ignored);
+            ignored.setLength(0);
+            if (protocol.getModel() != null) {
+                model = protocol.getModel();
+                // frames are drawn on a plain grid, which cannot show the shifted rows of hexagons
+                if (model.getTopology() == Topology.HEX) {
+                    throw new IllegalArgumentException("hex boards cannot be exported by ReplayExporter");
+                }
+                frames.add(BoardRenderer.snapshot(model));
+            }
+            if (protocol.isClosed()) {
+                break;
+            }
+        }
+        if (frames.isEmpty()) {
+            throw new IOException(file + " does not start a game");
+        }
+        return new Replay(model.getRows(), model.getCols(), frames);
+    }
+
+    /*
+      Writes one PNG per frame, each worker thread reusing its own image. Frames are stored
+      with the renderer's palette and fast deflate settings, which keeps encoding from
+      dominating the export.
+     */
+    public void exportPngSequence(Replay replay, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        ThreadLocal<BufferedImage> buffers =
+                ThreadLocal.withInitial(() -> renderer.createIndexedImage(replay.getRows(), replay.getCols()));
+        try {
+            IntStream.range(0, replay.getFrames().size()).parallel().forEach(i -> {
+                BufferedImage image = buffers.get();
+                renderer.render(replay.getFrames().get(i), replay.getRows(), replay.getCols(), image);
+                try {
+                    writePng(image, directory.resolve(String.format("frame-%05d.png", i)));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void writePng(BufferedImage image, Path file) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+        Files.deleteIfExists(file);
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(file.toFile())) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            // the JDK 8 PNG writer has no compression settings and always uses its default
+            if (param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(PNG_COMPRESSION_QUALITY);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /*
+      Writes an animated GIF. The encoder is sequential, so frames are rendered in parallel
+      one batch at a time into a fixed pool of palette images and then appended in order.
+      Each frame after the first only stores the rectangle of cells that changed.
+     */
+    public void exportGif(Replay replay, Path file, int frameDelay) throws IOException {
+        List<byte[]> frames = replay.getFrames();
+        BufferedImage[] pool = new BufferedImage[Runtime.getRuntime().availableProcessors() * 2];
+        for (int i = 0; i < pool.length; i++) {
+            pool[i] = renderer.createIndexedImage(replay.getRows(), replay.getCols());
+        }
+
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("gif").next();
+        Files.deleteIfExists(file);
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(file.toFile())) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            writer.prepareWriteSequence(null);
+
+            for (int start = 0; start < frames.size(); start += pool.length) {
+                int batch = Math.min(pool.length, frames.size() - start);
+                int first = start;
+                IntStream.range(0, batch).parallel().forEach(i ->
+                    renderer.render(frames.get(first + i), replay.getRows(), replay.getCols(), pool[i]));
+
+                for (int i = 0; i < batch; i++) {
+                    int frame = start + i;
+                    int[] changed = frame == 0 ? new int[]{0, 0, replay.getRows() - 1, replay.getCols() - 1}
+                                               : changedCells(frames.get(frame - 1), frames.get(frame), replay.getCols());
+                    int x = frame == 0 ? 0 : renderer.cellOffset(changed[1]);
+                    int y = frame == 0 ? 0 : renderer.cellOffset(changed[0]);
+                    int width = frame == 0 ? pool[i].getWidth()
+                                           : (changed[3] - changed[1] + 1) * renderer.getCellSize();
+                    int height = frame == 0 ? pool[i].getHeight()
+                                            : (changed[2] - changed[0] + 1) * renderer.getCellSize();
+                    BufferedImage image = pool[i].getSubimage(x, y, width, height);
+                    IIOMetadata metadata = gifMetadata(writer, param, image, frameDelay, x, y, frame == 0);
+                    writer.writeToSequence(new IIOImage(image, null, metadata), param);
+                }
+            }
+            writer.endWriteSequence();
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    // returns {top row, left col, bottom row, right col} of the cells that differ, or the first cell
+    private static int[] changedCells(byte[] previous, byte[] current, int cols) {
+        int top = Integer.MAX_VALUE;
+        int left = Integer.MAX_VALUE;
+        int bottom = -1;
+        int right = -1;
+        for (int cell = 0; cell < current.length; cell++) {
+            if (previous[cell] != current[cell]) {
+                top = Math.min(top, cell / cols);
+                bottom = Math.max(bottom, cell / cols);
+                left = Math.min(left, cell % cols);
+                right = Math.max(right, cell % cols);
+            }
+        }
+        return bottom < 0 ? new int[]{0, 0, 0, 0} : new int[]{top, left, bottom, right};
+    }
+
+    // to position a frame, set its delay and make the animation loop forever
+    private static IIOMetadata gifMetadata(ImageWriter writer, ImageWriteParam param, BufferedImage image,
+                                           int frameDelay, int x, int y, boolean first) throws IOException {
+        IIOMetadata metadata = writer.getDefaultImageMetadata(
+                ImageTypeSpecifier.createFromRenderedImage(image), param);
+        String format = metadata.getNativeMetadataFormatName();
+        IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(format);
+
+        IIOMetadataNode descriptor = (IIOMetadataNode) root.getElementsByTagName("ImageDescriptor").item(0);
+        descriptor.setAttribute("imageLeftPosition", String.valueOf(x));
+        descriptor.setAttribute("imageTopPosition", String.valueOf(y));
+
+        IIOMetadataNode control = new IIOMetadataNode("GraphicControlExtension");
+        control.setAttribute("disposalMethod", "doNotDispose");
+        control.setAttribute("userInputFlag", "FALSE");
+        control.setAttribute("transparentColorFlag", "FALSE");
+        control.setAttribute("delayTime", String.valueOf(frameDelay / 10));
+        control.setAttribute("transparentColorIndex", "0");
+        root.appendChild(control);
+
+        if (first) {
+            IIOMetadataNode extensions = new IIOMetadataNode("ApplicationExtensions");
+            IIOMetadataNode loop = new IIOMetadataNode("ApplicationExtension");
+            loop.setAttribute("applicationID", "NETSCAPE");
+            loop.setAttribute("authenticationCode", "2.0");
+            loop.setUserObject(new byte[]{1, 0, 0});
+            extensions.appendChild(loop);
+            root.appendChild(extensions);
+        }
+
+        metadata.setFromTree(format, root);
+        return metadata;
+    }
+
+    /*
+      Writes a PNG of the final position of every replay, working on several replays at once.
+      Each worker keeps its image while consecutive replays share a board size.
+     */
+    public void exportThumbnails(List<Path> replays, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        ThreadLocal<BufferedImage[]> buffers = ThreadLocal.withInitial(() -> new BufferedImage[1]);
+        try {
+            replays.parallelStream().forEach(file -> {
+                try {
+                    Replay replay = load(file);
+                    BufferedImage[] buffer = buffers.get();
+                    int width = renderer.imageWidth(replay.getCols());
+                    int height = renderer.imageHeight(replay.getRows());
+                    if (buffer[0] == null || buffer[0].getWidth() != width || buffer[0].getHeight() != height) {
+                        buffer[0] = renderer.createIndexedImage(replay.getRows(), replay.getCols());
+                    }
+                    List<byte[]> frames = replay.getFrames();
+                    renderer.render(frames.get(frames.size() - 1), replay.getRows(), replay.getCols(), buffer[0]);
+                    String name = file.getFileName().toString().replaceFirst("\\.[^.]*$", "") + ".png";
+                    writePng(buffer[0], directory.resolve(name));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        if (args.length < 3) {
+            System.err.println("Usage: java ReplayExporter png <replay> <output directory>");
+            System.err.println("       java ReplayExporter gif <replay> <output.gif> [frame delay ms]");
+            System.err.println("       java ReplayExporter thumbs <output directory> <replay>...");
+            System.exit(1);
+        }
+
+        long start = System.nanoTime();
+        switch (args[0]) {
+            case "png":
+                new ReplayExporter(GameConstants.CELL_SIZE)
+                        .exportPngSequence(load(Paths.get(args[1])), Paths.get(args[2]));
+                break;
+            case "gif":
+                int delay = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_FRAME_DELAY;
+                new ReplayExporter(GameConstants.CELL_SIZE)
+                        .exportGif(load(Paths.get(args[1])), Paths.get(args[2]), delay);
+                break;
+            case "thumbs":
+                List<Path> replays = new ArrayList<>();
+                for (String replay : Arrays.copyOfRange(args, 2, args.length)) {
+                    replays.add(Paths.get(replay));
+                }
+                new ReplayExporter(THUMBNAIL_CELL_SIZE).exportThumbnails(replays, Paths.get(args[1]));
+                break;
+            default:
+                System.err.println("Unknown export format " + args[0]);
+                System.exit(1);
+        }
+        System.out.printf("Exported in %.2fs%n", (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,237 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/*
+  Board that several players can reveal and flag at the same time without locks.
+  Each cell is packed into one int of an AtomicIntegerArray and only changes through
+  compare-and-set transitions: hidden -> revealed and hidden <-> flagged. The thread whose
+  CAS reveals a cell is the only one that counts it and continues a cascade from it, so
+  overlapping cascades from different players merge without double counting.
+
+  The mine layout comes from a BoardModel whose mines are already placed, for example
+  after the host's first reveal, so placement follows the usual first-click rules.
+
+  Every player subscribes for the cells changed by anyone's moves. A subscription is a bit
+  per cell set after the winning CAS and cleared when the player drains it, so memory stays
+  fixed however long the game runs and a cell changed twice is reported once.
+ */
+public class SharedBoard {
+    private static final int MINE = 1;
+    private static final int REVEALED = 2;
+    private static final int FLAGGED = 4;
+    private static final int COUNT_SHIFT = 4;
+
+    private final int rows;
+    private final int cols;
+    private final int[] neighborStart;
+    private final int[] neighbors;
+    private final AtomicIntegerArray cells;
+    private final AtomicInteger unrevealedSafeCells;
+    private final AtomicInteger remainingMines;
+    private volatile boolean lost;
+    private final List<Changes> subscribers = new CopyOnWriteArrayList<>();
+
+    // cells changed since one player last asked, set by every player's moves
+    public static final class Changes {
+        private final AtomicIntegerArray bits;
+        private final int cells;
+
+        Changes(int cells) {
+            this.cells = cells;
+            this.bits = new AtomicIntegerArray((cells + 31) / 32);
+        }
+
+        public void mark(int cell) {
+            int word = cell >>> 5;
+            int bit = 1 << (cell & 31);
+            while (true) {
+                int value = bits.get(word);
+                if ((value & bit) != 0 || bits.compareAndSet(word, value, value | bit)) {
+                    return;
+                }
+            }
+        }
+
+        // to return and clear the cells changed since the previous call, in index order
+        public int[] drain() {
+            int[] result = new int[16];
+            int count = 0;
+            for (int word = 0; word < bits.length(); word++) {
+                if (bits.get(word) == 0) {
+                    continue;
+                }
+                int value = bits.getAndSet(word, 0);
+                while (value != 0) {
+                    int cell = word << 5 | Integer.numberOfTrailingZeros(value);
+                    value &= value - 1;
+                    if (cell < cells) {
+                        if (count == result.length) {
+                            result = Arrays.copyOf(result, count * 2);
+                        }
+                        result[count++] = cell;
+                    }
+                }
+            }
+            return Arrays.copyOf(result, count);
+        }
+    }
+
+    public SharedBoard(BoardModel model) {
+        if (!model.areMinesPlaced()) {
+            throw new IllegalArgumentException("Mines must be placed before a board is shared");
+        }
+        this.rows = model.getRows();
+        this.cols = model.getCols();
+        this.neighborStart = model.getNeighborTable().getStart();
+        this.neighbors = model.getNeighborTable().getNeighbors();
+        this.cells = new AtomicIntegerArray(rows * cols);
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                cells.set(i * cols + j, (model.isMine(i, j) ? MINE : 0)
+                                        | (model.isRevealed(i, j) ? REVEALED : 0)
+                                        | (model.isFlagged(i, j) ? FLAGGED : 0)
+                                        | model.getAdjacentMines(i, j) << COUNT_SHIFT);
+            }
+        }
+        this.unrevealedSafeCells = new AtomicInteger(model.getUnrevealedSafeCells());
+        this.remainingMines = new AtomicInteger(model.getRemainingMines());
+        this.lost = model.isLost();
+    }
+
+    /*
+      Reveals a cell and cascades through empty cells. Safe to call from any thread.
+      Returns false if this call revealed a mine.
+     */
+    public boolean reveal(int row, int col) {
+        if (isGameOver() || !isValidCell(row, col)) {
+            return true;
+        }
+        int[] stack = new int[16];
+        int top = 0;
+        stack[top++] = row * cols + col;
+        while (top > 0) {
+            int cell = stack[--top];
+            int state = revealIfHidden(cell);
+            if (state < 0) {
+                continue;
+            }
+            markChanged(cell);
+            if ((state & MINE) != 0) {
+                lost = true;
+                return false;
+            }
+            unrevealedSafeCells.decrementAndGet();
+
+            if (state >> COUNT_SHIFT == 0) {
+                // to reveal all adjacent cells for empty cell
+                for (int k = neighborStart[cell]; k < neighborStart[cell + 1]; k++) {
+                    if (top == stack.length) {
+                        stack = Arrays.copyOf(stack, top * 2);
+                    }
+                    stack[top++] = neighbors[k];
+                }
+            }
+        }
+        return true;
+    }
+
+    // to reveal a hidden, unflagged cell, returns its previous state or -1 if another move won
+    private int revealIfHidden(int cell) {
+        while (true) {
+            int state = cells.get(cell);
+            if ((state & (REVEALED | FLAGGED)) != 0) {
+                return -1;
+            }
+            if (cells.compareAndSet(cell, state, state | REVEALED)) {
+                return state;
+            }
+        }
+    }
+
+    // to place or remove a flag, returns true if this call changed the cell
+    public boolean toggleFlag(int row, int col) {
+        if (isGameOver() || !isValidCell(row, col)) {
+            return false;
+        }
+        int cell = row * cols + col;
+        while (true) {
+            int state = cells.get(cell);
+            if ((state & REVEALED) != 0) {
+                return false;
+            }
+            if (cells.compareAndSet(cell, state, state ^ FLAGGED)) {
+                remainingMines.addAndGet((state & FLAGGED) != 0 ? 1 : -1);
+                markChanged(cell);
+                return true;
+            }
+        }
+    }
+
+    // to reveal the neighbours of a revealed number once it has as many adjacent flags
+    public boolean chord(int row, int col) {
+        if (isGameOver() || !isValidCell(row, col)) {
+            return true;
+        }
+        int cell = row * cols + col;
+        int state = cells.get(cell);
+        if ((state & REVEALED) == 0) {
+            return true;
+        }
+        int flags = 0;
+        for (int k = neighborStart[cell]; k < neighborStart[cell + 1]; k++) {
+            flags += (cells.get(neighbors[k]) & FLAGGED) != 0 ? 1 : 0;
+        }
+        if (flags != state >> COUNT_SHIFT) {
+            return true;
+        }
+        boolean safe = true;
+        for (int k = neighborStart[cell]; k < neighborStart[cell + 1]; k++) {
+            safe &= reveal(neighbors[k] / cols, neighbors[k] % cols);
+        }
+        return safe;
+    }
+
+    // to start tracking the cells changed by any player, for one player's diffs
+    public Changes subscribe() {
+        Changes changes = new Changes(rows * cols);
+        subscribers.add(changes);
+        return changes;
+    }
+
+    // to stop tracking changes for a player who left, returns the number of players still in
+    public int unsubscribe(Changes changes) {
+        subscribers.remove(changes);
+        return subscribers.size();
+    }
+
+    private void markChanged(int cell) {
+        for (Changes changes : subscribers) {
+            changes.mark(cell);
+        }
+    }
+
+    public boolean isValidCell(int row, int col) {
+        return row >= 0 && row < rows && col >= 0 && col < cols;
+    }
+
+    public boolean isWon() {
+        return !lost && unrevealedSafeCells.get() == 0;
+    }
+
+    public boolean isGameOver() {
+        return lost || unrevealedSafeCells.get() == 0;
+    }
+
+    public boolean isLost() { return lost; }
+    public boolean isMine(int row, int col) { return (cells.get(row * cols + col) & MINE) != 0; }
+    public boolean isRevealed(int row, int col) { return (cells.get(row * cols + col) & REVEALED) != 0; }
+    public boolean isFlagged(int row, int col) { return (cells.get(row * cols + col) & FLAGGED) != 0; }
+    public int getAdjacentMines(int row, int col) { return cells.get(row * cols + col) >> COUNT_SHIFT; }
+    public int getRows() { return rows; }
+    public int getCols() { return cols; }
+    public int getRemainingMines() { return remainingMines.get(); }
+    public int getUnrevealedSafeCells() { return unrevealedSafeCells.get(); }
+}
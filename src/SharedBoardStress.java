@@ -0,0 +1,139 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+  Stress check for SharedBoard.
+  Many threads play the same board at once with random reveals, flag toggles and chords,
+  draining their change subscriptions as they go, then reveal every safe cell that is left.
+  Afterwards the shared counters are checked against a recount of the cells, and every
+  revealed cell must have been reported to every player.
+
+  Usage: java SharedBoardStress [threads] [rounds] [moves per thread]
+ */
+public class SharedBoardStress {
+    private static final int ROWS = 200;
+    private static final int COLS = 200;
+    private static final int MINES = 4000;
+    private static final int DRAIN_INTERVAL = 1024;
+
+    // to play one player's random moves and return the cells reported to it
+    private static boolean[] play(SharedBoard board, SharedBoard.Changes changes, long seed, int moves) {
+        Random random = new Random(seed);
+        boolean[] reported = new boolean[ROWS * COLS];
+        for (int move = 0; move < moves; move++) {
+            int row = random.nextInt(ROWS);
+            int col = random.nextInt(COLS);
+            int kind = random.nextInt(8);
+            /*
+              Only mines are flagged, and flags are only taken back in the top half while chords
+              only happen in the bottom half, so no chord can open a mine and nobody loses.
+             */
+            if (board.isMine(row, col)) {
+                if (!board.isFlagged(row, col) || kind == 0 && row < ROWS / 2) {
+                    board.toggleFlag(row, col);
+                }
+            } else if (kind == 1 && row > ROWS / 2) {
+                board.chord(row, col);
+            } else {
+                board.reveal(row, col);
+            }
+            if (move % DRAIN_INTERVAL == 0) {
+                collect(changes, reported);
+            }
+        }
+        for (int row = 0; row < ROWS; row++) {
+            for (int col = 0; col < COLS; col++) {
+                if (!board.isMine(row, col)) {
+                    board.reveal(row, col);
+                }
+            }
+        }
+        return reported;
+    }
+
+    private static void collect(SharedBoard.Changes changes, boolean[] reported) {
+        for (int cell : changes.drain()) {
+            reported[cell] = true;
+        }
+    }
+
+    // to run one round, returns null if it passed or a description of what went wrong
+    private static String round(int round, int threads, int moves) throws Exception {
+        BoardModel model = new BoardModel(ROWS, COLS, MINES, round);
+        model.reveal(ROWS / 2, COLS / 2);
+        SharedBoard board = new SharedBoard(model);
+
+        List<SharedBoard.Changes> subscriptions = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            subscriptions.add(board.subscribe());
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<boolean[]>> players = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            SharedBoard.Changes changes = subscriptions.get(t);
+            long seed = (long) round * threads + t;
+            players.add(pool.submit(() -> play(board, changes, seed, moves)));
+        }
+
+        List<boolean[]> reported = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            boolean[] cells = players.get(t).get();
+            collect(subscriptions.get(t), cells);
+            reported.add(cells);
+        }
+        pool.shutdown();
+
+        int hiddenSafe = 0;
+        int flags = 0;
+        for (int row = 0; row < ROWS; row++) {
+            for (int col = 0; col < COLS; col++) {
+                if (!board.isMine(row, col) && !board.isRevealed(row, col)) {
+                    hiddenSafe++;
+                }
+                if (board.isFlagged(row, col)) {
+                    flags++;
+                }
+            }
+        }
+        if (board.isLost() || !board.isWon()) {
+            return board.isLost() ? "a mine was revealed" : "board not cleared";
+        }
+        if (hiddenSafe != board.getUnrevealedSafeCells()) {
+            return "unrevealed safe cells " + board.getUnrevealedSafeCells() + ", recount " + hiddenSafe;
+        }
+        if (MINES - flags != board.getRemainingMines()) {
+            return "remaining mines " + board.getRemainingMines() + ", recount " + (MINES - flags);
+        }
+        for (int t = 0; t < threads; t++) {
+            for (int cell = 0; cell < ROWS * COLS; cell++) {
+                if (board.isRevealed(cell / COLS, cell % COLS) && !model.isRevealed(cell / COLS, cell % COLS)
+                        && !reported.get(t)[cell]) {
+                    return "cell " + cell + " never reported to player " + t;
+                }
+            }
+        }
+        return null;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0])
+                                      : Math.max(4, Runtime.getRuntime().availableProcessors());
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int moves = args.length > 2 ? Integer.parseInt(args[2]) : 50_000;
+
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            String failure = round(round, threads, moves);
+            if (failure != null) {
+                System.out.println("Round " + round + " failed: " + failure);
+                System.exit(1);
+            }
+        }
+        System.out.printf("%d rounds of %d threads passed in %.2fs%n",
+                          rounds, threads, (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,99 @@
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+  Bounded cache from 64 bit keys to a pair of longs, shared by solver threads without locks.
+  Slots are grouped into sets of WAYS. A key can only live in its own set, so a lookup
+  compares at most WAYS keys, and inserting into a full set evicts with the clock rule: an
+  entry that was not used since the set was last swept is replaced, others lose their mark.
+
+  Entries are immutable once published through the AtomicReferenceArray, so readers never
+  see half written values. Keys are trusted to be well mixed 64 bit hashes and are not
+  verified further.
+ */
+public class SolverCache {
+    private static final int WAYS = 4;
+
+    private final AtomicReferenceArray<Entry> slots;
+    private final int setMask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    // one cached result
+    public static final class Entry {
+        private final long key;
+        private final long first;
+        private final long second;
+        private volatile boolean used;
+
+        Entry(long key, long first, long second) {
+            this.key = key;
+            this.first = first;
+            this.second = second;
+        }
+
+        public long getFirst() { return first; }
+        public long getSecond() { return second; }
+    }
+
+    // capacity is rounded up to a power of two number of sets
+    public SolverCache(int capacity) {
+        int sets = Integer.highestOneBit(Math.max(1, (capacity + WAYS - 1) / WAYS - 1) << 1);
+        this.slots = new AtomicReferenceArray<>(sets * WAYS);
+        this.setMask = sets - 1;
+    }
+
+    // returns the entry for key, or null on a miss
+    public Entry get(long key) {
+        int base = setOf(key);
+        for (int way = 0; way < WAYS; way++) {
+            Entry entry = slots.get(base + way);
+            if (entry != null && entry.key == key) {
+                if (!entry.used) {
+                    entry.used = true;
+                }
+                hits.increment();
+                return entry;
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(long key, long first, long second) {
+        Entry fresh = new Entry(key, first, second);
+        int base = setOf(key);
+        for (int way = 0; way < WAYS; way++) {
+            Entry entry = slots.get(base + way);
+            if (entry == null ? slots.compareAndSet(base + way, null, fresh)
+                              : entry.key == key && slots.compareAndSet(base + way, entry, fresh)) {
+                return;
+            }
+        }
+        // two sweeps always find an unmarked entry unless other threads keep marking them
+        for (int sweep = 0; sweep < 2 * WAYS; sweep++) {
+            int way = sweep % WAYS;
+            Entry entry = slots.get(base + way);
+            if (entry != null && entry.used) {
+                entry.used = false;
+            } else if (slots.compareAndSet(base + way, entry, fresh)) {
+                if (entry != null) {
+                    evictions.increment();
+                }
+                return;
+            }
+        }
+        slots.set(base, fresh);
+        evictions.increment();
+    }
+
+    private int setOf(long key) {
+        return ((int) (key ^ key >>> 32) & setMask) * WAYS;
+    }
+
+    public int capacity() { return slots.length(); }
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    public long getEvictions() { return evictions.sum(); }
+}
@@ -0,0 +1,97 @@
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+  Decides which cells of a rows x cols grid are neighbours.
+    SQUARE  the classic board, up to 8 neighbours, the edges are walls
+    TORUS   the same grid with opposite edges joined, so every cell has 8 neighbours
+    HEX     hexagons in offset rows with odd rows shifted half a cell right, up to 6 neighbours
+  Every topology works with rows != cols.
+
+  The neighbours of a shape are computed once into a NeighborTable and shared by every board
+  of that shape. Tables are held softly, so shapes that are no longer played can be
+  reclaimed under memory pressure.
+ */
+public enum Topology {
+    SQUARE, TORUS, HEX;
+
+    private static final ConcurrentHashMap<Long, SoftReference<NeighborTable>> TABLES = new ConcurrentHashMap<>();
+
+    // returns the shared neighbour table for a board shape, building it on first use
+    public NeighborTable neighbors(int rows, int cols) {
+        long key = (long) ordinal() << 48 | (long) rows << 24 | cols;
+        SoftReference<NeighborTable> cached = TABLES.get(key);
+        NeighborTable table = cached == null ? null : cached.get();
+        if (table == null) {
+            table = build(rows, cols);
+            TABLES.put(key, new SoftReference<>(table));
+        }
+        return table;
+    }
+
+    // to read a topology name from a command, case insensitive
+    public static Topology parse(String name) {
+        for (Topology topology : values()) {
+            if (topology.name().equalsIgnoreCase(name)) {
+                return topology;
+            }
+        }
+        throw new IllegalArgumentException("unknown topology " + name);
+    }
+
+    /*
+      Lists the neighbours of every cell in row major order of their offsets, which keeps
+      cascades and diffs on square boards in the same order as before tables existed.
+      A torus narrower than 3 cells would reach the same cell twice or itself, such
+      repeats are dropped.
+     */
+    private NeighborTable build(int rows, int cols) {
+        int cells = rows * cols;
+        int[] start = new int[cells + 1];
+        int[] neighbors = new int[cells * 8];
+        int count = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                int cell = row * cols + col;
+                int first = count;
+                for (int i = -1; i <= 1; i++) {
+                    for (int j = -1; j <= 1; j++) {
+                        int neighbor = neighbor(rows, cols, row, col, i, j);
+                        if (neighbor < 0 || neighbor == cell) {
+                            continue;
+                        }
+                        boolean repeated = false;
+                        for (int k = first; k < count; k++) {
+                            repeated |= neighbors[k] == neighbor;
+                        }
+                        if (!repeated) {
+                            neighbors[count++] = neighbor;
+                        }
+                    }
+                }
+                start[cell + 1] = count;
+            }
+        }
+        return new NeighborTable(start, Arrays.copyOf(neighbors, count));
+    }
+
+    // returns the cell at offset (i, j) from (row, col), or -1 if there is none
+    private int neighbor(int rows, int cols, int row, int col, int i, int j) {
+        int r = row + i;
+        int c = col + j;
+        switch (this) {
+            case TORUS:
+                return Math.floorMod(r, rows) * cols + Math.floorMod(c, cols);
+            case HEX:
+                // above and below, even rows reach the left diagonal and odd rows the right one
+                if (i != 0 && j == (row % 2 == 0 ? 1 : -1)) {
+                    return -1;
+                }
+                break;
+            default:
+                break;
+        }
+        return r >= 0 && r < rows && c >= 0 && c < cols ? r * cols + c : -1;
+    }
+}